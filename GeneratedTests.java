@@ -1,100 +1,135 @@
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import static org.junit.jupiter.api.Assertions.*;
 import java.net.http.*;
 import java.net.*;
 import java.time.Duration;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import com.testlang.runtime.*;
 
 public class GeneratedTests {
-    static String BASE = "http://localhost:8080";
+    static String BASE = Env.get("base_url", "http://localhost:8080");
+    static Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    static Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
     static Map<String, String> DEFAULT_HEADERS = new HashMap<>();
-    static HttpClient client;
+    static InstrumentedHttpClient client;
+
+    @RegisterExtension
+    static final DurationRecorder DURATIONS = new DurationRecorder(Env.get("durations", ".testlang-durations"));
+    @RegisterExtension
+    static final FailFast FAIL_FAST = new FailFast(Integer.parseInt(Env.get("fail_fast", "0")));
+
+    static final String VAR_user = Env.get("user", "admin");
+    static final String VAR_id = Env.get("id", "42");
+    static final String VAR_role = Env.get("role", "ADMIN");
 
     @BeforeAll
     static void setup() {
-        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        client = new InstrumentedHttpClient(HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build());
         DEFAULT_HEADERS.put("Content-Type", "application/json");
         DEFAULT_HEADERS.put("X-App", "TestLangDemo");
     }
 
+    @AfterAll
+    static void summary() {
+        System.out.println(client.summary());
+    }
+
     @Test
     void test_Login() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/login"))
-            .timeout(Duration.ofSeconds(10))
-            .POST(HttpRequest.BodyPublishers.ofString("{ \"username\": \"admin\", \"password\": \"1234\" }"));
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI_Login_1)
+            .timeout(REQUEST_TIMEOUT)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(BODY_Login_1));
         for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        MultiPatternMatcher body = new MultiPatternMatcher("\"token\":");
+        HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(body));
 
         assertEquals(200, resp.statusCode());
         assertTrue(resp.headers().firstValue("Content-Type").orElse("").contains("json"));
-        assertTrue(resp.body().contains("\"token\":"));
+        assertTrue(body.found("\"token\":"), body.describe("\"token\":"));
     }
 
     @Test
     void test_GetUser() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
-            .timeout(Duration.ofSeconds(10))
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI_GetUser_1)
+            .timeout(REQUEST_TIMEOUT)
             .GET();
         for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        JsonPathMatcher json = new JsonPathMatcher("$.id", "$.email");
+        HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(json));
 
         assertEquals(200, resp.statusCode());
-        assertTrue(resp.body().contains("\"id\": 42"));
+        assertTrue(json.hasValue("$.id", 42), json.describe("$.id"));
+        assertTrue(json.valueContains("$.email", "@example.com"), json.describe("$.email"));
     }
 
     @Test
     void test_UpdateUser() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
-            .timeout(Duration.ofSeconds(10))
-            .PUT(HttpRequest.BodyPublishers.ofString("{ \"role\": \"ADMIN\" }"));
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI_UpdateUser_1)
+            .timeout(REQUEST_TIMEOUT)
+            .PUT(HttpRequest.BodyPublishers.ofByteArray(BODY_UpdateUser_1));
         b.header("Content-Type", "application/json");
         for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        JsonPathMatcher json = new JsonPathMatcher("$.updated", "$.role");
+        HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(json));
 
         assertEquals(200, resp.statusCode());
         assertEquals("TestLangDemo", resp.headers().firstValue("X-App").orElse(""));
         assertTrue(resp.headers().firstValue("Content-Type").orElse("").contains("json"));
-        assertTrue(resp.body().contains("\"updated\": true"));
-        assertTrue(resp.body().contains("\"role\": \"ADMIN\""));
+        assertTrue(json.hasValue("$.updated", true), json.describe("$.updated"));
+        assertTrue(json.hasValue("$.role", "ADMIN"), json.describe("$.role"));
     }
 
     @Test
     void test_DeleteUser() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/users/999"))
-            .timeout(Duration.ofSeconds(10))
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI_DeleteUser_1)
+            .timeout(REQUEST_TIMEOUT)
             .DELETE();
         for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        JsonPathMatcher json = new JsonPathMatcher("$.deleted");
+        HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(json));
 
         assertEquals(200, resp.statusCode());
-        assertTrue(resp.body().contains("\"deleted\": true"));
+        assertTrue(json.hasValue("$.deleted", true), json.describe("$.deleted"));
     }
 
     @Test
     void test_LoginWithMultipleChecks() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/login"))
-            .timeout(Duration.ofSeconds(10))
-            .POST(HttpRequest.BodyPublishers.ofString("{ \"username\": \"admin\", \"password\": \"1234\" }"));
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI_LoginWithMultipleChecks_1)
+            .timeout(REQUEST_TIMEOUT)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(BODY_LoginWithMultipleChecks_1));
         for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        MultiPatternMatcher body = new MultiPatternMatcher("\"success\":", "\"token\":");
+        HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(body));
 
         assertEquals(200, resp.statusCode());
         assertEquals("application/json", resp.headers().firstValue("Content-Type").orElse(""));
-        assertTrue(resp.body().contains("\"success\":"));
-        assertTrue(resp.body().contains("\"token\":"));
+        assertTrue(body.found("\"success\":"), body.describe("\"success\":"));
+        assertTrue(body.found("\"token\":"), body.describe("\"token\":"));
     }
 
     @Test
     void test_CheckStatusRange() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
-            .timeout(Duration.ofSeconds(10))
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI_CheckStatusRange_1)
+            .timeout(REQUEST_TIMEOUT)
             .GET();
         for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        MultiPatternMatcher body = new MultiPatternMatcher("\"id\":");
+        HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(body));
 
         assertTrue(resp.statusCode() >= 200 && resp.statusCode() <= 299, "Status code should be in range [200..299]");
-        assertTrue(resp.body().contains("\"id\":"));
+        assertTrue(body.found("\"id\":"), body.describe("\"id\":"));
     }
 
+    // Requests resolved once, when the class initializes
+    static final URI URI_Login_1 = URI.create(BASE + "/api/login");
+    static final byte[] BODY_Login_1 = ("{ \"username\": \"" + VAR_user + "\", \"password\": \"1234\" }").getBytes(StandardCharsets.UTF_8);
+    static final URI URI_GetUser_1 = URI.create(BASE + "/api/users/" + VAR_id);
+    static final URI URI_UpdateUser_1 = URI.create(BASE + "/api/users/" + VAR_id);
+    static final byte[] BODY_UpdateUser_1 = ("{ \"role\": \"" + VAR_role + "\" }").getBytes(StandardCharsets.UTF_8);
+    static final URI URI_DeleteUser_1 = URI.create(BASE + "/api/users/999");
+    static final URI URI_LoginWithMultipleChecks_1 = URI.create(BASE + "/api/login");
+    static final byte[] BODY_LoginWithMultipleChecks_1 = ("{ \"username\": \"admin\", \"password\": \"1234\" }").getBytes(StandardCharsets.UTF_8);
+    static final URI URI_CheckStatusRange_1 = URI.create(BASE + "/api/users/" + VAR_id);
     }
@@ -0,0 +1,178 @@
+package com.testlang.backend.common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads fields of a flat JSON object straight from the request bytes, for
+ * the Spring backend's fast path and for backend-lite. Accepts what Jackson
+ * accepts for a {@code Map<String, String>} body: string, number, boolean
+ * and null values, with numbers and booleans kept as their text.
+ */
+public final class FlatJson {
+    private final byte[] json;
+    private int pos;
+
+    private FlatJson(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * The values of {@code keys}, null where a key is missing or null
+     *
+     * @throws IllegalArgumentException if the body is not a flat JSON object
+     */
+    public static String[] read(byte[] json, String... keys) {
+        FlatJson reader = new FlatJson(json);
+        String[] values = new String[keys.length];
+        reader.expect('{');
+        if (reader.peek() == '}') {
+            reader.pos++;
+        } else {
+            while (true) {
+                String key = reader.string();
+                reader.expect(':');
+                int index = indexOf(keys, key);
+                String value = reader.scalar(index >= 0);
+                if (index >= 0) {
+                    values[index] = value;
+                }
+                int c = reader.next();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("Expected ',' or '}' at " + (reader.pos - 1));
+                }
+            }
+        }
+        if (reader.peek() != -1) {
+            throw new IllegalArgumentException("Unexpected text after the object at " + reader.pos);
+        }
+        return values;
+    }
+
+    private static int indexOf(String[] keys, String key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param keep whether to decode the value; skipped values are only checked
+     */
+    private String scalar(boolean keep) {
+        if (peek() == '"') {
+            return string();
+        }
+        int start = pos;
+        while (pos < json.length && "{}[],: \t\r\n\"".indexOf(json[pos]) < 0) {
+            pos++;
+        }
+        String value = new String(json, start, pos - start, StandardCharsets.ISO_8859_1);
+        if (value.equals("null")) {
+            return null;
+        }
+        if (value.equals("true") || value.equals("false") || value.matches("-?[0-9]+(\\.[0-9]+)?([eE][+-]?[0-9]+)?")) {
+            return keep ? value : null;
+        }
+        throw new IllegalArgumentException("Expected a string, number, boolean or null at " + start);
+    }
+
+    private String string() {
+        expect('"');
+        int start = pos;
+        // Without escapes, the value is a slice of the body
+        while (pos < json.length && json[pos] != '"' && json[pos] != '\\') {
+            pos++;
+        }
+        if (pos < json.length && json[pos] == '"') {
+            return new String(json, start, pos++ - start, StandardCharsets.UTF_8);
+        }
+        StringBuilder out = new StringBuilder(new String(json, start, pos - start, StandardCharsets.UTF_8));
+        while (true) {
+            if (pos >= json.length) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            int run = pos;
+            while (pos < json.length && json[pos] != '"' && json[pos] != '\\') {
+                pos++;
+            }
+            out.append(new String(json, run, pos - run, StandardCharsets.UTF_8));
+            if (pos >= json.length) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            if (json[pos++] == '"') {
+                return out.toString();
+            }
+            if (pos >= json.length) {
+                throw new IllegalArgumentException("Unterminated string");
+            }
+            char escape = (char) json[pos++];
+            switch (escape) {
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > json.length) {
+                        throw new IllegalArgumentException("Invalid \\u escape at " + (pos - 2));
+                    }
+                    try {
+                        out.append((char) Integer.parseInt(new String(json, pos, 4, StandardCharsets.ISO_8859_1), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid \\u escape at " + (pos - 2));
+                    }
+                    pos += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    out.append(escape);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape at " + (pos - 2));
+            }
+        }
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at " + (pos - 1));
+        }
+    }
+
+    /**
+     * The next byte after whitespace, consumed; -1 at the end
+     */
+    private int next() {
+        int c = peek();
+        if (c != -1) {
+            pos++;
+        }
+        return c;
+    }
+
+    /**
+     * The next byte after whitespace; -1 at the end
+     */
+    private int peek() {
+        while (pos < json.length && (json[pos] == ' ' || json[pos] == '\t' || json[pos] == '\r' || json[pos] == '\n')) {
+            pos++;
+        }
+        return pos < json.length ? json[pos] & 0xFF : -1;
+    }
+}
@@ -0,0 +1,374 @@
+package com.testlang.backend.common;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The users behind /api/users, by id, in memory. The Spring backend and
+ * backend-lite both keep their users here, so they answer alike.
+ *
+ * A user is its id and a role; the username and email are derived from
+ * the id. Users are spread over lock stripes by a hash of their id, and
+ * each stripe is an open-addressing table of an {@code int[]} of ids and a
+ * {@code byte[]} of role numbers, about 10 bytes per user, with no object
+ * per user. Roles are numbered in a shared table of at most 255 names.
+ *
+ * Reads are optimistic: they take no lock and retry under the stripe's
+ * read lock only if a write to the same stripe overlapped them. Writes
+ * lock one stripe. {@link #stats()} counts the retried reads and the
+ * writes that had to wait for a lock.
+ */
+public class UserStore {
+    public static final String DEFAULT_ROLE = "USER";
+
+    private static final int MAX_ROLES = 255;
+    // Role number 0 marks a free slot
+    private static final byte FREE = 0;
+
+    private final Stripe[] stripes;
+    private final int stripeBits;
+    private final int preloaded;
+    private final Object rolesLock = new Object();
+    private volatile String[] roles = { null, DEFAULT_ROLE };
+    private final Map<String, Byte> roleNumbers = new HashMap<>();
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readRetries = new LongAdder();
+
+    /**
+     * @param stripes   number of lock stripes, rounded up to a power of two
+     * @param preloaded number of users created with ids 1 to {@code preloaded} and the default role
+     */
+    public UserStore(int stripes, int preloaded) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Stripes must be between 1 and 65536: " + stripes);
+        }
+        if (preloaded < 0) {
+            throw new IllegalArgumentException("Preloaded users cannot be negative: " + preloaded);
+        }
+        this.stripeBits = 32 - Integer.numberOfLeadingZeros(stripes - 1);
+        this.stripes = new Stripe[1 << stripeBits];
+        this.preloaded = preloaded;
+        roleNumbers.put(DEFAULT_ROLE, (byte) 1);
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(stripeBits, preloaded / this.stripes.length);
+        }
+        preload();
+    }
+
+    /**
+     * The user's role
+     *
+     * @return null if there is no such user
+     */
+    public String getRole(int id) {
+        reads.increment();
+        Stripe stripe = stripe(id);
+        long stamp = stripe.lock.tryOptimisticRead();
+        int role = stripe.table.find(id);
+        if (!stripe.lock.validate(stamp)) {
+            readRetries.increment();
+            stamp = stripe.lock.readLock();
+            try {
+                role = stripe.table.find(id);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return role == FREE ? null : roles[role];
+    }
+
+    /**
+     * Creates the user or changes its role
+     *
+     * @param role the new role; null keeps the role of an existing user and
+     *             gives a new one the default role
+     * @return the user's role
+     * @throws IllegalArgumentException if the role would be one more than the
+     *                                  255 distinct roles the store can hold
+     */
+    public String put(int id, String role) {
+        byte number = role == null ? FREE : roleNumber(role);
+        Stripe stripe = stripe(id);
+        long stamp = stripe.writeLock();
+        try {
+            Table table = stripe.table;
+            int index = table.indexOf(id);
+            if (table.roles[index] == FREE) {
+                if (number == FREE) {
+                    number = 1;
+                }
+                stripe.insert(index, id, number);
+            } else if (number != FREE) {
+                table.roles[index] = number;
+            } else {
+                number = table.roles[index];
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        return roles[number & 0xFF];
+    }
+
+    /**
+     * @return whether there was such a user
+     */
+    public boolean delete(int id) {
+        Stripe stripe = stripe(id);
+        long stamp = stripe.writeLock();
+        try {
+            return stripe.table.remove(id);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes every user and creates the preloaded users again. Not atomic:
+     * a concurrent read may miss a preloaded user.
+     */
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                stripe.table = stripe.emptyTable(preloaded / stripes.length);
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+        preload();
+    }
+
+    public Map<String, Object> stats() {
+        long users = 0;
+        long bytes = 0;
+        long writes = 0;
+        long contendedWrites = 0;
+        long waitNanos = 0;
+        long busiest = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                users += stripe.table.size;
+                bytes += stripe.table.ids.length * (Integer.BYTES + 1L);
+                writes += stripe.writes;
+                contendedWrites += stripe.contendedWrites;
+                waitNanos += stripe.waitNanos;
+                busiest = Math.max(busiest, stripe.contendedWrites);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        long readCount = reads.sum();
+        long retries = readRetries.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", users);
+        stats.put("bytes", bytes);
+        stats.put("stripes", stripes.length);
+        stats.put("roles", roles.length - 1);
+        stats.put("reads", readCount);
+        stats.put("readRetries", retries);
+        stats.put("readRetryRate", readCount == 0 ? 0.0 : (double) retries / readCount);
+        stats.put("writes", writes);
+        stats.put("contendedWrites", contendedWrites);
+        stats.put("contendedWriteRate", writes == 0 ? 0.0 : (double) contendedWrites / writes);
+        stats.put("writeWaitMicros", waitNanos / 1000);
+        stats.put("maxContendedWritesPerStripe", busiest);
+        return stats;
+    }
+
+    private void preload() {
+        for (int id = 1; id <= preloaded; id++) {
+            Stripe stripe = stripe(id);
+            long stamp = stripe.lock.writeLock();
+            try {
+                int index = stripe.table.indexOf(id);
+                if (stripe.table.roles[index] == FREE) {
+                    stripe.insert(index, id, (byte) 1);
+                }
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private Stripe stripe(int id) {
+        return stripes[hash(id) & (stripes.length - 1)];
+    }
+
+    private byte roleNumber(String role) {
+        String[] known = roles;
+        for (int i = 1; i < known.length; i++) {
+            if (known[i].equals(role)) {
+                return (byte) i;
+            }
+        }
+        synchronized (rolesLock) {
+            Byte number = roleNumbers.get(role);
+            if (number != null) {
+                return number;
+            }
+            if (roles.length > MAX_ROLES) {
+                throw new IllegalArgumentException("Too many distinct roles (at most " + MAX_ROLES + ")");
+            }
+            String[] grown = Arrays.copyOf(roles, roles.length + 1);
+            grown[roles.length] = role;
+            number = (byte) roles.length;
+            roleNumbers.put(role, number);
+            roles = grown;
+            return number;
+        }
+    }
+
+    /**
+     * Murmur3's finalizer, so that consecutive ids spread over stripes and slots
+     */
+    private static int hash(int id) {
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        // Slots are found from the hash bits above those that chose the stripe
+        final int shift;
+        Table table;
+        // Guarded by the write lock
+        long writes;
+        long contendedWrites;
+        long waitNanos;
+
+        Stripe(int shift, int users) {
+            this.shift = shift;
+            this.table = emptyTable(users);
+        }
+
+        Table emptyTable(int users) {
+            int capacity = 16;
+            while (capacity / 4 * 3 < users) {
+                capacity <<= 1;
+            }
+            return new Table(capacity, shift);
+        }
+
+        void insert(int index, int id, byte role) {
+            table.insert(index, id, role);
+            if (table.size > table.threshold) {
+                table = table.grow();
+            }
+        }
+
+        long writeLock() {
+            long stamp = lock.tryWriteLock();
+            if (stamp == 0) {
+                long start = System.nanoTime();
+                stamp = lock.writeLock();
+                contendedWrites++;
+                waitNanos += System.nanoTime() - start;
+            }
+            writes++;
+            return stamp;
+        }
+    }
+
+    /**
+     * Linear probing over parallel arrays; a slot is free when its role is 0.
+     * A table is never more than three quarters full, so a probe always
+     * reaches a free slot.
+     */
+    private static final class Table {
+        final int[] ids;
+        final byte[] roles;
+        final int mask;
+        final int shift;
+        final int threshold;
+        int size;
+
+        Table(int capacity, int shift) {
+            ids = new int[capacity];
+            roles = new byte[capacity];
+            mask = capacity - 1;
+            this.shift = shift;
+            threshold = capacity / 4 * 3;
+        }
+
+        int home(int id) {
+            return (hash(id) >>> shift) & mask;
+        }
+
+        /**
+         * The user's role number, or 0. Safe to call during a write: a torn
+         * result is discarded by the caller, and the probe is bounded.
+         */
+        int find(int id) {
+            int[] ids = this.ids;
+            byte[] roles = this.roles;
+            for (int i = 0, index = home(id); i <= mask; i++, index = (index + 1) & mask) {
+                byte role = roles[index];
+                if (role == FREE) {
+                    return FREE;
+                }
+                if (ids[index] == id) {
+                    return role & 0xFF;
+                }
+            }
+            return FREE;
+        }
+
+        /**
+         * The user's slot, or the free slot where it would go
+         */
+        int indexOf(int id) {
+            int index = home(id);
+            while (roles[index] != FREE && ids[index] != id) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        void insert(int index, int id, byte role) {
+            ids[index] = id;
+            roles[index] = role;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = indexOf(id);
+            if (roles[index] == FREE) {
+                return false;
+            }
+            // Move later entries of the probe sequence back, so no tombstones are needed
+            int free = index;
+            for (int next = (free + 1) & mask; roles[next] != FREE; next = (next + 1) & mask) {
+                int home = home(ids[next]);
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    ids[free] = ids[next];
+                    roles[free] = roles[next];
+                    free = next;
+                }
+            }
+            roles[free] = FREE;
+            size--;
+            return true;
+        }
+
+        Table grow() {
+            Table grown = new Table(ids.length * 2, shift);
+            for (int i = 0; i < ids.length; i++) {
+                if (roles[i] != FREE) {
+                    grown.insert(grown.indexOf(ids[i]), ids[i], roles[i]);
+                }
+            }
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.testlang.lite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.testlang.backend.common.FlatJson;
+import com.testlang.backend.common.UserStore;
+
+/**
+ * The endpoints of the Spring backend's {@code ApiController} and
+ * {@code UserStoreController}, with the same status codes, headers and JSON
+ * fields, over the same {@link UserStore}
+ */
+public class ApiHandler implements HttpHandler {
+    private static final String USERS = "/api/users/";
+
+    private final UserStore users;
+
+    public ApiHandler(UserStore users) {
+        this.users = users;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/api/login")) {
+                if (method.equals("POST")) {
+                    login(exchange);
+                } else {
+                    error(exchange, 405, "Method Not Allowed", path);
+                }
+            } else if (path.equals("/api/users/stats") && method.equals("GET")) {
+                send(exchange, 200, false, Json.object(users.stats()));
+            } else if (path.equals("/api/users/reset") && method.equals("POST")) {
+                reset(exchange);
+            } else if (path.startsWith(USERS) && path.indexOf('/', USERS.length()) < 0) {
+                int id;
+                try {
+                    id = Integer.parseInt(path.substring(USERS.length()));
+                } catch (NumberFormatException e) {
+                    error(exchange, 400, "Bad Request", path);
+                    return;
+                }
+                switch (method) {
+                    case "GET":
+                        getUser(exchange, id);
+                        break;
+                    case "PUT":
+                        updateUser(exchange, id);
+                        break;
+                    case "DELETE":
+                        deleteUser(exchange, id);
+                        break;
+                    default:
+                        error(exchange, 405, "Method Not Allowed", path);
+                        break;
+                }
+            } else {
+                error(exchange, 404, "Not Found", path);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * POST /api/login - Login endpoint
+     */
+    private static void login(HttpExchange exchange) throws IOException {
+        String[] credentials = readObject(exchange, "username", "password");
+        if (credentials == null) {
+            return;
+        }
+        String username = credentials[0];
+        if ("admin".equals(username) && "1234".equals(credentials[1])) {
+            send(exchange, 200, false, "{\"success\":true,\"token\":\"eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.demo\"," +
+                    "\"username\":" + Json.quote(username) + "}");
+        } else {
+            send(exchange, 401, false, "{\"success\":false,\"error\":\"Invalid credentials\"}");
+        }
+    }
+
+    /**
+     * GET /api/users/{id} - Get user by ID
+     */
+    private void getUser(HttpExchange exchange, int id) throws IOException {
+        String role = users.getRole(id);
+        if (role == null) {
+            send(exchange, 404, false, "{\"id\":" + id + ",\"error\":\"User not found\"}");
+            return;
+        }
+        send(exchange, 200, true, "{\"id\":" + id + ",\"username\":\"user" + id + "\",\"email\":\"user" + id +
+                "@example.com\",\"role\":" + Json.quote(role) + "}");
+    }
+
+    /**
+     * PUT /api/users/{id} - Update user, or create it
+     */
+    private void updateUser(HttpExchange exchange, int id) throws IOException {
+        String[] updates = readObject(exchange, "role");
+        if (updates == null) {
+            return;
+        }
+        String role;
+        try {
+            role = users.put(id, updates[0]);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, false, "{\"id\":" + id + ",\"error\":" + Json.quote(e.getMessage()) + "}");
+            return;
+        }
+        send(exchange, 200, true, "{\"updated\":true,\"id\":" + id + ",\"role\":" + Json.quote(role) + "}");
+    }
+
+    /**
+     * DELETE /api/users/{id} - Delete user; deleting it again also succeeds
+     */
+    private void deleteUser(HttpExchange exchange, int id) throws IOException {
+        users.delete(id);
+        send(exchange, 200, false, "{\"deleted\":true,\"id\":" + id + "}");
+    }
+
+    /**
+     * POST /api/users/reset - Restore the preloaded users
+     */
+    private void reset(HttpExchange exchange) throws IOException {
+        users.reset();
+        send(exchange, 200, false, "{\"reset\":true,\"users\":" + users.stats().get("users") + "}");
+    }
+
+    /**
+     * The values of {@code keys} in the request body, a flat JSON object;
+     * answers 400 and returns null if the body is not one
+     */
+    private static String[] readObject(HttpExchange exchange, String... keys) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        try {
+            return FlatJson.read(body, keys);
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, "Bad Request", exchange.getRequestURI().getPath());
+            return null;
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String error, String path) throws IOException {
+        send(exchange, status, false, "{\"status\":" + status + ",\"error\":\"" + error + "\",\"path\":" + Json.quote(path) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, boolean appHeader, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (appHeader) {
+            exchange.getResponseHeaders().set("X-App", "TestLangDemo");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
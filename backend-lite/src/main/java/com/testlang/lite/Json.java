@@ -0,0 +1,46 @@
+package com.testlang.lite;
+
+import java.util.Map;
+
+/**
+ * JSON text for the responses: quoted strings and flat objects. Request
+ * bodies are read by {@code FlatJson}, as in the Spring backend.
+ */
+final class Json {
+    private Json() {
+    }
+
+    /**
+     * An object whose values are strings, numbers or booleans, in the map's order
+     */
+    static String object(Map<String, Object> object) {
+        StringBuilder out = new StringBuilder().append('{');
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            Object value = entry.getValue();
+            out.append(quote(entry.getKey())).append(':')
+                    .append(value instanceof String ? quote((String) value) : String.valueOf(value));
+        }
+        return out.append('}').toString();
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+}
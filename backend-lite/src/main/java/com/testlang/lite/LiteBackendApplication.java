@@ -0,0 +1,119 @@
+package com.testlang.lite;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpServer;
+import com.testlang.backend.common.UserStore;
+
+/**
+ * Reference backend with the same API as the Spring backend, on the JDK's
+ * HTTP server. It has no third-party dependencies and no classpath
+ * scanning, so it
+ * starts in tens of milliseconds, and it answers from one handler without
+ * a framework in the path, so a load test measures the client and not the
+ * server.
+ *
+ * Options:
+ * <pre>
+ *   --port &lt;n&gt;                     port to listen on (default: 8080)
+ *   --executor fixed|cached|virtual  threads that run the handler (default: fixed)
+ *   --threads &lt;n&gt;                  size of the fixed pool (default: 2 per CPU)
+ *   --preload &lt;n&gt;                  users 1 to n created at startup (default: 1000)
+ *   --stripes &lt;n&gt;                  lock stripes of the user store (default: 64)
+ * </pre>
+ * {@code virtual} runs each request on a virtual thread; it needs Java 21
+ * and falls back to the fixed pool on older runtimes.
+ */
+public class LiteBackendApplication {
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        int port = 8080;
+        String executorKind = "fixed";
+        int threads = 2 * Runtime.getRuntime().availableProcessors();
+        // The Spring backend's million would take most of the startup time
+        int preload = 1_000;
+        int stripes = 64;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--executor":
+                    executorKind = value;
+                    i++;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--preload":
+                    preload = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--stripes":
+                    stripes = Integer.parseInt(value);
+                    i++;
+                    break;
+                default:
+                    System.err.println("Usage: java -jar testlang-lite-backend.jar [--port <n>] " +
+                            "[--executor fixed|cached|virtual] [--threads <n>] [--preload <n>] [--stripes <n>]");
+                    System.exit(1);
+            }
+        }
+
+        // Small responses on keep-alive connections otherwise wait for delayed ACKs
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/api/", new ApiHandler(new UserStore(stripes, preload)));
+        String description = executorKind;
+        switch (executorKind) {
+            case "cached":
+                server.setExecutor(Executors.newCachedThreadPool());
+                break;
+            case "virtual":
+                ExecutorService virtual = virtualThreadExecutor();
+                if (virtual != null) {
+                    server.setExecutor(virtual);
+                    break;
+                }
+                System.err.println("Warning: Virtual threads need Java 21; using a fixed pool");
+                // Fall through
+            case "fixed":
+                server.setExecutor(Executors.newFixedThreadPool(threads));
+                description = "fixed, " + threads + " threads";
+                break;
+            default:
+                System.err.println("Error: Unknown executor '" + executorKind + "'");
+                System.exit(1);
+        }
+        server.start();
+
+        System.out.println("Started LiteBackendApplication on port " + port + " in " +
+                (System.nanoTime() - start) / 1_000_000 + " ms (" + description + " executor)");
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, looked up at run
+     * time so that the module still builds for Java 11
+     *
+     * @return null if the runtime has no virtual threads
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the virtual thread executor", e);
+        }
+    }
+}
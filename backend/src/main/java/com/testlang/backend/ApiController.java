@@ -1,5 +1,7 @@
 package com.testlang.backend;
 
+import com.testlang.backend.common.UserStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -8,7 +10,13 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
+@ConditionalOnProperty(name = "testlang.backend.fast-path", havingValue = "false", matchIfMissing = true)
 public class ApiController {
+    private final UserStore users;
+
+    public ApiController(UserStore users) {
+        this.users = users;
+    }
 
     /**
      * POST /api/login - Login endpoint
@@ -39,11 +47,16 @@ public class ApiController {
      */
     @GetMapping("/users/{id}")
     public ResponseEntity<Map<String, Object>> getUser(@PathVariable int id) {
+        String role = users.getRole(id);
+        if (role == null) {
+            return notFound(id);
+        }
+
         Map<String, Object> user = new HashMap<>();
         user.put("id", id);
         user.put("username", "user" + id);
         user.put("email", "user" + id + "@example.com");
-        user.put("role", "USER");
+        user.put("role", role);
         
         return ResponseEntity.ok()
                 .header("Content-Type", "application/json")
@@ -52,17 +65,27 @@ public class ApiController {
     }
 
     /**
-     * PUT /api/users/{id} - Update user
+     * PUT /api/users/{id} - Update user, or create it
      */
     @PutMapping("/users/{id}")
     public ResponseEntity<Map<String, Object>> updateUser(
             @PathVariable int id, 
             @RequestBody Map<String, String> updates) {
         
+        String role;
+        try {
+            role = users.put(id, updates.get("role"));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            response.put("id", id);
+            return ResponseEntity.badRequest().body(response);
+        }
+
         Map<String, Object> response = new HashMap<>();
         response.put("updated", true);
         response.put("id", id);
-        response.put("role", updates.get("role"));
+        response.put("role", role);
         
         return ResponseEntity.ok()
                 .header("Content-Type", "application/json")
@@ -71,10 +94,12 @@ public class ApiController {
     }
 
     /**
-     * DELETE /api/users/{id} - Delete user
+     * DELETE /api/users/{id} - Delete user; deleting it again also succeeds
      */
     @DeleteMapping("/users/{id}")
     public ResponseEntity<Map<String, Object>> deleteUser(@PathVariable int id) {
+        users.delete(id);
+
         Map<String, Object> response = new HashMap<>();
         response.put("deleted", true);
         response.put("id", id);
@@ -83,4 +108,11 @@ public class ApiController {
                 .header("Content-Type", "application/json")
                 .body(response);
     }
+
+    private static ResponseEntity<Map<String, Object>> notFound(int id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "User not found");
+        response.put("id", id);
+        return ResponseEntity.status(404).body(response);
+    }
 }
@@ -0,0 +1,162 @@
+package com.testlang.backend;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Compile responses by the SHA-256 of their source, evicted least recently
+ * used once their total size passes a byte limit.
+ *
+ * Entries are the serialized responses, so a hit costs a hash and a map
+ * lookup and their size is known exactly. Concurrent misses for the same
+ * source wait for one compilation instead of each running their own.
+ */
+public class CompileCache {
+    // Key, map entry and array headers of one cached response
+    private static final int ENTRY_OVERHEAD = 200;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Response> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Response>> compiling = new ConcurrentHashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long coalesced;
+    private long evictions;
+
+    public CompileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The response for {@code source}, from the cache or from {@code compile}
+     *
+     * @return the response and whether it came from the cache
+     */
+    public Lookup get(String source, Function<String, Response> compile) {
+        String key = sha256(source);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        CompletableFuture<Response> running;
+        synchronized (this) {
+            Response cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return new Lookup(cached, true);
+            }
+            running = compiling.putIfAbsent(key, pending);
+            if (running == null) {
+                misses++;
+            } else {
+                coalesced++;
+            }
+        }
+        if (running != null) {
+            return new Lookup(running.join(), true);
+        }
+        try {
+            Response response = compile.apply(source);
+            put(key, response);
+            pending.complete(response);
+            return new Lookup(response, false);
+        } catch (RuntimeException | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            compiling.remove(key);
+        }
+    }
+
+    private synchronized void put(String key, Response response) {
+        long size = response.body.length + ENTRY_OVERHEAD;
+        if (size > maxBytes) {
+            return;
+        }
+        Response previous = entries.put(key, response);
+        if (previous != null) {
+            bytes -= previous.body.length + ENTRY_OVERHEAD;
+        }
+        bytes += size;
+        Iterator<Response> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().body.length + ENTRY_OVERHEAD;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + coalesced + misses;
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("coalesced", coalesced);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) (hits + coalesced) / lookups);
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private static String sha256(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A serialized compile response
+     */
+    public static final class Response {
+        private final boolean success;
+        private final byte[] body;
+
+        public Response(boolean success, byte[] body) {
+            this.success = success;
+            this.body = body;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    public static final class Lookup {
+        private final Response response;
+        private final boolean cached;
+
+        Lookup(Response response, boolean cached) {
+            this.response = response;
+            this.cached = cached;
+        }
+
+        public Response getResponse() {
+            return response;
+        }
+
+        /**
+         * Whether the response was compiled for another request
+         */
+        public boolean isCached() {
+            return cached;
+        }
+    }
+}
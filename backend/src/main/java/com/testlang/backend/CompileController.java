@@ -0,0 +1,129 @@
+package com.testlang.backend;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testlang.CompilationResult;
+import com.testlang.TestLangCompiler;
+import com.testlang.parser.Diagnostics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@RestController
+@RequestMapping("/api")
+public class CompileController {
+    private final TestLangCompiler compiler = new TestLangCompiler();
+    private final ObjectMapper mapper;
+    private final CompileCache cache;
+    private final Latency cachedLatency = new Latency();
+    private final Latency compiledLatency = new Latency();
+
+    public CompileController(ObjectMapper mapper,
+                             @Value("${testlang.compile.cache-max-bytes:67108864}") long cacheMaxBytes) {
+        this.mapper = mapper;
+        this.cache = new CompileCache(cacheMaxBytes);
+    }
+
+    /**
+     * POST /api/compile - Compile TestLang++ source to a JUnit 5 class
+     *
+     * Identical sources are answered from the cache; the X-Compile-Cache
+     * header tells whether a response was a HIT or a MISS.
+     */
+    @PostMapping("/compile")
+    public ResponseEntity<byte[]> compile(@RequestBody String source) {
+        long start = System.nanoTime();
+        CompileCache.Lookup lookup = cache.get(source, this::compileToJson);
+        (lookup.isCached() ? cachedLatency : compiledLatency).record(System.nanoTime() - start);
+
+        return ResponseEntity.status(lookup.getResponse().isSuccess() ? 200 : 422)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Compile-Cache", lookup.isCached() ? "HIT" : "MISS")
+                .body(lookup.getResponse().getBody());
+    }
+
+    /**
+     * GET /api/compile/stats - Cache hit rate and compile latency
+     */
+    @GetMapping("/compile/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cache", cache.stats());
+        response.put("cachedLatency", cachedLatency.toMap());
+        response.put("compiledLatency", compiledLatency.toMap());
+
+        return ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .body(response);
+    }
+
+    private CompileCache.Response compileToJson(String source) {
+        CompilationResult result;
+        try {
+            result = compiler.compile(new StringReader(source));
+        } catch (IOException e) {
+            // A StringReader does not fail
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", result.isSuccess());
+        if (result.isSuccess()) {
+            response.put("code", result.getCode());
+        } else {
+            response.put("error", result.getError());
+            List<Map<String, Object>> diagnostics = new ArrayList<>();
+            for (Diagnostics.Diagnostic diagnostic : result.getDiagnostics()) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("kind", diagnostic.getKind().name());
+                entry.put("line", diagnostic.getLine());
+                entry.put("column", diagnostic.getColumn());
+                entry.put("message", diagnostic.getMessage());
+                diagnostics.add(entry);
+            }
+            response.put("diagnostics", diagnostics);
+        }
+        response.put("warnings", result.getWarnings());
+
+        try {
+            return new CompileCache.Response(result.isSuccess(), mapper.writeValueAsBytes(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize compile response", e);
+        }
+    }
+
+    /**
+     * Count, mean and maximum of request latencies
+     */
+    private static final class Latency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", n);
+            map.put("meanMicros", n == 0 ? 0 : totalNanos.sum() / n / 1000);
+            map.put("maxMicros", maxNanos.get() / 1000);
+            return map;
+        }
+    }
+}
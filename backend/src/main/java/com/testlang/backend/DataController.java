@@ -0,0 +1,154 @@
+package com.testlang.backend;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Large and streamed responses, for benchmarking how a client handles
+ * bodies. Bodies are {@link SeededRecords} written while they are sent, a
+ * few kilobytes at a time, so the server holds no response in memory and
+ * the same parameters always give the same bytes.
+ *
+ * Each response holds a thread of Spring's task executor until the client
+ * has read it; {@code spring.task.execution.pool.*} sizes that pool, and a
+ * request that finds it full is answered 503.
+ */
+@RestController
+@RequestMapping("/api/data")
+public class DataController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int FLUSH_BYTES = 8192;
+    private static final long MAX_BYTES = 1L << 30;
+    private static final int MAX_PAGE_SIZE = 100_000;
+    private static final long MAX_RECORDS = 10_000_000;
+
+    private static final byte[] PAGE_1 = ResponseWriter.ascii("{\"page\":");
+    private static final byte[] PAGE_2 = ResponseWriter.ascii(",\"size\":");
+    private static final byte[] PAGE_3 = ResponseWriter.ascii(",\"total\":");
+    private static final byte[] PAGE_4 = ResponseWriter.ascii(",\"pages\":");
+    private static final byte[] PAGE_5 = ResponseWriter.ascii(",\"items\":[");
+    private static final byte[] ARRAY_START = ResponseWriter.ascii("[");
+    private static final byte[] ARRAY_END = ResponseWriter.ascii("]");
+    private static final byte[] OBJECT_END = ResponseWriter.ascii("]}");
+    private static final byte[] COMMA = ResponseWriter.ascii(",");
+    private static final byte[] NEWLINE = ResponseWriter.ascii("\n");
+
+    /**
+     * GET /api/data/users?page=0&amp;size=100&amp;total=1000000&amp;seed=42 - One page of records
+     */
+    @GetMapping("/users")
+    public ResponseEntity<StreamingResponseBody> users(@RequestParam(defaultValue = "0") long page,
+                                                       @RequestParam(defaultValue = "100") int size,
+                                                       @RequestParam(defaultValue = "1000000") long total,
+                                                       @RequestParam(defaultValue = "42") long seed) {
+        check(page >= 0 && page <= Integer.MAX_VALUE, "page must be between 0 and " + Integer.MAX_VALUE);
+        check(size >= 1 && size <= MAX_PAGE_SIZE, "size must be between 1 and " + MAX_PAGE_SIZE);
+        check(total >= 0 && total <= Integer.MAX_VALUE, "total must be between 0 and " + Integer.MAX_VALUE);
+        long first = Math.min(total, page * size);
+        long end = Math.min(total, first + size);
+
+        StreamingResponseBody body = out -> {
+            ResponseWriter writer = ResponseWriter.get();
+            writer.append(PAGE_1).append(page)
+                    .append(PAGE_2).append(size)
+                    .append(PAGE_3).append(total)
+                    .append(PAGE_4).append((total + size - 1) / size)
+                    .append(PAGE_5);
+            for (long index = first; index < end; index++) {
+                if (index > first) {
+                    writer.append(COMMA);
+                }
+                SeededRecords.append(writer, seed, index);
+                if (writer.size() >= FLUSH_BYTES) {
+                    writer.writeTo(out);
+                }
+            }
+            writer.append(OBJECT_END).writeTo(out);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * GET /api/data/large?bytes=5242880&amp;seed=42 - A JSON array of records
+     * of at least {@code bytes} bytes
+     */
+    @GetMapping("/large")
+    public ResponseEntity<StreamingResponseBody> large(@RequestParam(defaultValue = "5242880") long bytes,
+                                                       @RequestParam(defaultValue = "42") long seed) {
+        check(bytes >= 0 && bytes <= MAX_BYTES, "bytes must be between 0 and " + MAX_BYTES);
+
+        StreamingResponseBody body = out -> {
+            ResponseWriter writer = ResponseWriter.get();
+            writer.append(ARRAY_START);
+            long written = 0;
+            for (long index = 0; written + writer.size() + 1 < bytes; index++) {
+                if (index > 0) {
+                    writer.append(COMMA);
+                }
+                SeededRecords.append(writer, seed, index);
+                if (writer.size() >= FLUSH_BYTES) {
+                    written += writer.size();
+                    writer.writeTo(out);
+                }
+            }
+            writer.append(ARRAY_END).writeTo(out);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * GET /api/data/chunked?records=1000&amp;seed=42 - Newline-delimited
+     * records, each flushed on its own so it arrives as its own chunk
+     */
+    @GetMapping("/chunked")
+    public ResponseEntity<StreamingResponseBody> chunked(@RequestParam(defaultValue = "1000") long records,
+                                                         @RequestParam(defaultValue = "42") long seed) {
+        check(records >= 0 && records <= MAX_RECORDS, "records must be between 0 and " + MAX_RECORDS);
+
+        StreamingResponseBody body = out -> {
+            ResponseWriter writer = ResponseWriter.get();
+            for (long index = 0; index < records; index++) {
+                SeededRecords.append(writer, seed, index);
+                writer.append(NEWLINE).writeTo(out);
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(body);
+    }
+
+    /**
+     * The task executor's threads and queue are all taken by other streams
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Map<String, Object>> busy(HttpServletRequest request) {
+        if (request.isAsyncStarted()) {
+            // Spring also dispatches the rejection back as the async result; answer it then
+            return null;
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", 503);
+        response.put("error", "Too many streamed responses");
+        return ResponseEntity.status(503).header("Retry-After", "1").body(response);
+    }
+
+    private static void check(boolean valid, String message) {
+        if (!valid) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+    }
+}
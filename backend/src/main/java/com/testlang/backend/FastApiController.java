@@ -0,0 +1,137 @@
+package com.testlang.backend;
+
+import com.testlang.backend.common.FlatJson;
+import com.testlang.backend.common.UserStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * The endpoints of {@link ApiController} without Jackson or maps, for load
+ * tests. Fixed responses are precomputed bytes, and responses that depend
+ * on the id are assembled from byte fragments by a {@link ResponseWriter}.
+ * Request bodies are read by {@link FlatJson}. Responses are byte for byte
+ * those of ApiController, with a Content-Length instead of chunks.
+ *
+ * Enabled by {@code testlang.backend.fast-path=true}, which disables
+ * ApiController. Both read and change the same {@link UserStore}.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnProperty(name = "testlang.backend.fast-path", havingValue = "true")
+public class FastApiController {
+    private static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+    private static final String JSON_SUFFIXED = "application/*+json";
+
+    private static final byte[] LOGIN_OK = ResponseWriter.ascii(
+            "{\"success\":true,\"token\":\"eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.demo\",\"username\":\"admin\"}");
+    private static final byte[] LOGIN_FAILED = ResponseWriter.ascii("{\"success\":false,\"error\":\"Invalid credentials\"}");
+
+    private static final byte[] USER_1 = ResponseWriter.ascii("{\"role\":");
+    private static final byte[] USER_2 = ResponseWriter.ascii(",\"id\":");
+    private static final byte[] USER_3 = ResponseWriter.ascii(",\"email\":\"user");
+    private static final byte[] USER_4 = ResponseWriter.ascii("@example.com\",\"username\":\"user");
+    private static final byte[] USER_5 = ResponseWriter.ascii("\"}");
+
+    private static final byte[] UPDATED_1 = ResponseWriter.ascii("{\"role\":");
+    private static final byte[] UPDATED_2 = ResponseWriter.ascii(",\"id\":");
+    private static final byte[] UPDATED_3 = ResponseWriter.ascii(",\"updated\":true}");
+
+    private static final byte[] DELETED_1 = ResponseWriter.ascii("{\"deleted\":true,\"id\":");
+    private static final byte[] DELETED_2 = ResponseWriter.ascii("}");
+
+    private static final byte[] ERROR_1 = ResponseWriter.ascii("{\"id\":");
+    private static final byte[] ERROR_2 = ResponseWriter.ascii(",\"error\":");
+    private static final byte[] ERROR_3 = ResponseWriter.ascii("}");
+
+    private final UserStore users;
+
+    public FastApiController(UserStore users) {
+        this.users = users;
+    }
+
+    /**
+     * POST /api/login - Login endpoint
+     */
+    @PostMapping(value = "/login", consumes = { JSON, JSON_SUFFIXED })
+    public void login(@RequestBody byte[] body, HttpServletResponse response) throws IOException {
+        String[] credentials = read(body, "username", "password");
+        if ("admin".equals(credentials[0]) && "1234".equals(credentials[1])) {
+            ResponseWriter.write(response, 200, false, LOGIN_OK);
+        } else {
+            ResponseWriter.write(response, 401, false, LOGIN_FAILED);
+        }
+    }
+
+    /**
+     * GET /api/users/{id} - Get user by ID
+     */
+    @GetMapping("/users/{id}")
+    public void getUser(@PathVariable int id, HttpServletResponse response) throws IOException {
+        String role = users.getRole(id);
+        if (role == null) {
+            error(response, 404, id, "User not found");
+            return;
+        }
+        ResponseWriter.get()
+                .append(USER_1).appendString(role)
+                .append(USER_2).append(id)
+                .append(USER_3).append(id)
+                .append(USER_4).append(id)
+                .append(USER_5)
+                .writeTo(response, 200, true);
+    }
+
+    /**
+     * PUT /api/users/{id} - Update user, or create it
+     */
+    @PutMapping(value = "/users/{id}", consumes = { JSON, JSON_SUFFIXED })
+    public void updateUser(@PathVariable int id, @RequestBody byte[] body, HttpServletResponse response)
+            throws IOException {
+        String role;
+        try {
+            role = users.put(id, read(body, "role")[0]);
+        } catch (IllegalArgumentException e) {
+            error(response, 400, id, e.getMessage());
+            return;
+        }
+        ResponseWriter.get()
+                .append(UPDATED_1).appendString(role)
+                .append(UPDATED_2).append(id)
+                .append(UPDATED_3)
+                .writeTo(response, 200, true);
+    }
+
+    /**
+     * DELETE /api/users/{id} - Delete user; deleting it again also succeeds
+     */
+    @DeleteMapping("/users/{id}")
+    public void deleteUser(@PathVariable int id, HttpServletResponse response) throws IOException {
+        users.delete(id);
+        ResponseWriter.get()
+                .append(DELETED_1).append(id)
+                .append(DELETED_2)
+                .writeTo(response, 200, false);
+    }
+
+    private static void error(HttpServletResponse response, int status, int id, String message) throws IOException {
+        ResponseWriter.get()
+                .append(ERROR_1).append(id)
+                .append(ERROR_2).appendString(message)
+                .append(ERROR_3)
+                .writeTo(response, status, false);
+    }
+
+    private static String[] read(byte[] body, String... keys) {
+        try {
+            return FlatJson.read(body, keys);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.testlang.backend;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class FaultController {
+    private final FaultInjectionFilter filter;
+
+    public FaultController(FaultInjectionFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * GET /api/admin/faults - The fault injection rules and what they did
+     */
+    @GetMapping("/faults")
+    public ResponseEntity<Map<String, Object>> faults() {
+        return ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .body(describe());
+    }
+
+    /**
+     * PUT /api/admin/faults - Replace the rules with those in the body, one per line
+     */
+    @PutMapping("/faults")
+    public ResponseEntity<Map<String, Object>> setFaults(@RequestBody(required = false) String rules) {
+        try {
+            filter.setRules(rules);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        return ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .body(describe());
+    }
+
+    /**
+     * DELETE /api/admin/faults - Remove every rule
+     */
+    @DeleteMapping("/faults")
+    public ResponseEntity<Map<String, Object>> clearFaults() {
+        filter.setRules(null);
+
+        return ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .body(describe());
+    }
+
+    private Map<String, Object> describe() {
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        for (FaultProfile profile : filter.getProfiles()) {
+            profiles.add(profile.toMap());
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("profiles", profiles);
+        return response;
+    }
+}
@@ -0,0 +1,302 @@
+package com.testlang.backend;
+
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delays, fails and slows down the requests that match a {@link FaultProfile}.
+ *
+ * No request thread waits. A delayed request is put in async mode and its
+ * thread returns to the pool; a scheduler thread later dispatches it back
+ * to the container, or answers the injected error. A shaped body is
+ * buffered until the handler, or an async handler such as a
+ * {@code StreamingResponseBody}, has written all of it, and then sent
+ * chunk by chunk with non-blocking writes: the scheduler only decides when
+ * the next chunk may go, and the container writes it when the client can
+ * take it. So thousands of delayed requests cost only their pending tasks,
+ * and a client that reads slowly holds up only its own response.
+ *
+ * Requests under {@code /api/admin/} are never affected, so the rules can
+ * always be changed.
+ */
+public class FaultInjectionFilter implements Filter {
+    private static final String PROFILE = FaultInjectionFilter.class.getName() + ".profile";
+    private static final String SHAPED = FaultInjectionFilter.class.getName() + ".shaped";
+
+    /**
+     * A write to a client that went away fails outside the handler; the
+     * container would otherwise render an error page for it
+     */
+    private static final AsyncListener COMPLETE_ON_ERROR = new AsyncListener() {
+        @Override
+        public void onError(AsyncEvent event) {
+            event.getAsyncContext().complete();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    };
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fault-injection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile List<FaultProfile> profiles;
+
+    /**
+     * @param rules rules for {@link FaultProfile#parseAll}
+     */
+    public FaultInjectionFilter(String rules) {
+        this.profiles = Collections.unmodifiableList(FaultProfile.parseAll(rules));
+    }
+
+    public List<FaultProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * Replaces the rules; requests already delayed keep their old rule
+     *
+     * @throws IllegalArgumentException if a rule is malformed, leaving the old rules in place
+     */
+    public void setRules(String rules) {
+        this.profiles = Collections.unmodifiableList(FaultProfile.parseAll(rules));
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            FaultProfile delayed = (FaultProfile) request.getAttribute(PROFILE);
+            Shaped shaped = (Shaped) request.getAttribute(SHAPED);
+            if (delayed != null) {
+                // Back from the delay
+                request.removeAttribute(PROFILE);
+                handle(request, response, chain, delayed);
+                return;
+            }
+            if (shaped != null) {
+                // An async handler's last dispatch; its body is complete after this
+                request.removeAttribute(SHAPED);
+                chain.doFilter(request, response);
+                send(request, shaped.buffered, shaped.shape);
+                return;
+            }
+        }
+        FaultProfile profile = request.getDispatcherType() == DispatcherType.REQUEST ? match(request) : null;
+        if (profile == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long delay = profile.nextDelay();
+        boolean error = profile.nextError();
+        if (delay == 0 && !error) {
+            handle(request, response, chain, profile);
+            return;
+        }
+        AsyncContext async = startAsync(request);
+        FaultProfile delayed = profile;
+        scheduler.schedule(() -> {
+            if (error) {
+                sendError(async, delayed.getErrorStatus());
+            } else {
+                request.setAttribute(PROFILE, delayed);
+                async.dispatch();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private FaultProfile match(HttpServletRequest request) {
+        List<FaultProfile> profiles = this.profiles;
+        if (profiles.isEmpty()) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/admin/")) {
+            return null;
+        }
+        for (FaultProfile profile : profiles) {
+            if (profile.matches(request.getMethod(), path)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs the handler, then sends its body in the profile's shape
+     */
+    private void handle(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                        FaultProfile profile) throws IOException, ServletException {
+        FaultProfile.BodyShape shape = profile.getBody();
+        if (shape == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, buffered);
+        send(request, buffered, shape);
+    }
+
+    /**
+     * Sends a buffered body in its shape once the handler has written all of it
+     */
+    private void send(HttpServletRequest request, ContentCachingResponseWrapper buffered,
+                      FaultProfile.BodyShape shape) {
+        if (request.isAsyncStarted()) {
+            // An async handler, such as a StreamingResponseBody, is still writing
+            request.setAttribute(SHAPED, new Shaped(buffered, shape));
+            return;
+        }
+        byte[] body = buffered.getContentAsByteArray();
+        HttpServletResponse response = (HttpServletResponse) buffered.getResponse();
+        response.setContentLength(body.length);
+        if (body.length == 0) {
+            return;
+        }
+        AsyncContext async = startAsync(request);
+        write(async, body, shape.chunkBytes(body.length), shape.getIntervalMillis());
+    }
+
+    private static AsyncContext startAsync(HttpServletRequest request) {
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        async.addListener(COMPLETE_ON_ERROR);
+        return async;
+    }
+
+    private void sendError(AsyncContext async, int status) {
+        HttpServletRequest request = (HttpServletRequest) async.getRequest();
+        HttpServletResponse response = (HttpServletResponse) async.getResponse();
+        byte[] body = ("{\"status\":" + status + ",\"error\":\"Injected fault\",\"path\":\"" +
+                request.getRequestURI().replace("\\", "\\\\").replace("\"", "\\\"") + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setContentLength(body.length);
+        write(async, body, body.length, 0);
+    }
+
+    /**
+     * Sends {@code body} in chunks of {@code chunkBytes}, {@code intervalMillis}
+     * apart, and completes the request
+     */
+    private void write(AsyncContext async, byte[] body, int chunkBytes, long intervalMillis) {
+        try {
+            async.getResponse().getOutputStream().setWriteListener(
+                    new ChunkWriter(async, body, chunkBytes, intervalMillis));
+        } catch (IOException e) {
+            // The client went away
+            async.complete();
+        }
+    }
+
+    private static final class Shaped {
+        final ContentCachingResponseWrapper buffered;
+        final FaultProfile.BodyShape shape;
+
+        Shaped(ContentCachingResponseWrapper buffered, FaultProfile.BodyShape shape) {
+            this.buffered = buffered;
+            this.shape = shape;
+        }
+    }
+
+    /**
+     * Writes a body only while the client can take more. The container calls
+     * {@link #onWritePossible} when it can; once a chunk has gone out the
+     * scheduler releases the next one after the interval.
+     */
+    private final class ChunkWriter implements WriteListener {
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final byte[] body;
+        private final int chunkBytes;
+        private final long intervalMillis;
+        private int released;
+        private int written;
+        private boolean flushed;
+
+        ChunkWriter(AsyncContext async, byte[] body, int chunkBytes, long intervalMillis) throws IOException {
+            this.async = async;
+            this.out = async.getResponse().getOutputStream();
+            this.body = body;
+            this.chunkBytes = chunkBytes;
+            this.intervalMillis = intervalMillis;
+            this.released = Math.min(body.length, chunkBytes);
+        }
+
+        @Override
+        public synchronized void onWritePossible() throws IOException {
+            while (out.isReady()) {
+                if (written < released) {
+                    out.write(body, written, released - written);
+                    written = released;
+                    flushed = false;
+                } else if (!flushed) {
+                    out.flush();
+                    flushed = true;
+                } else if (written == body.length) {
+                    async.complete();
+                    return;
+                } else {
+                    scheduler.schedule(this::release, intervalMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+            // The container calls back when the client has caught up
+        }
+
+        private synchronized void release() {
+            released = Math.min(body.length, released + chunkBytes);
+            try {
+                onWritePossible();
+            } catch (IOException e) {
+                // The client went away
+                async.complete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // COMPLETE_ON_ERROR completes the request
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,341 @@
+package com.testlang.backend;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and faults injected into the requests of one endpoint, parsed
+ * from a rule such as
+ * <pre>
+ *   GET /api/users/* latency=lognormal(20,0.5) errors=0.01:503 body=drip(16,50)
+ * </pre>
+ * A rule is a method ({@code *} for any), an Ant-style path pattern and
+ * options:
+ * <ul>
+ *   <li>{@code latency=} a delay in milliseconds before the request is
+ *       handled: {@code 100} or {@code fixed(100)}, {@code uniform(min,max)},
+ *       {@code lognormal(median,sigma)}, or {@code bimodal(slowFraction,fast,slow)}
+ *       whose two modes are delays themselves</li>
+ *   <li>{@code errors=} the fraction of requests answered with an error
+ *       instead, {@code 0.05}, optionally with its status, {@code 0.05:500}
+ *       (default 503)</li>
+ *   <li>{@code body=} how the response body is sent: {@code drip(bytes,ms)}
+ *       sends it in chunks of that many bytes, one every {@code ms};
+ *       {@code stall(ms)} sends the first half and then nothing for {@code ms}</li>
+ * </ul>
+ * Delays are capped at {@link #MAX_DELAY_MILLIS}.
+ */
+public final class FaultProfile {
+    public static final long MAX_DELAY_MILLIS = 60_000;
+
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
+
+    private final String rule;
+    private final String method;
+    private final String pattern;
+    private final Delay latency;
+    private final double errorRate;
+    private final int errorStatus;
+    private final BodyShape body;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder delayMillis = new LongAdder();
+
+    private FaultProfile(String rule, String method, String pattern, Delay latency, double errorRate,
+                         int errorStatus, BodyShape body) {
+        this.rule = rule;
+        this.method = method;
+        this.pattern = pattern;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        this.body = body;
+    }
+
+    /**
+     * Parses rules separated by semicolons or new lines; blank rules are ignored
+     *
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    public static List<FaultProfile> parseAll(String rules) {
+        List<FaultProfile> profiles = new ArrayList<>();
+        if (rules == null) {
+            return profiles;
+        }
+        for (String rule : rules.split("[;\\n]")) {
+            if (!rule.trim().isEmpty()) {
+                profiles.add(parse(rule.trim()));
+            }
+        }
+        return profiles;
+    }
+
+    private static FaultProfile parse(String rule) {
+        List<String> tokens = tokens(rule);
+        if (tokens.size() < 2) {
+            throw new IllegalArgumentException("Expected a method and a path in '" + rule + "'");
+        }
+        String method = tokens.get(0).toUpperCase(Locale.ROOT);
+        String pattern = tokens.get(1);
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Path pattern must start with '/' in '" + rule + "'");
+        }
+        Delay latency = null;
+        double errorRate = 0;
+        int errorStatus = 503;
+        BodyShape body = null;
+        for (String option : tokens.subList(2, tokens.size())) {
+            int equals = option.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value, got '" + option + "' in '" + rule + "'");
+            }
+            String name = option.substring(0, equals);
+            String value = option.substring(equals + 1);
+            switch (name) {
+                case "latency":
+                    latency = Delay.parse(value);
+                    break;
+                case "errors":
+                    int colon = value.indexOf(':');
+                    errorRate = number(colon < 0 ? value : value.substring(0, colon));
+                    if (errorRate < 0 || errorRate > 1) {
+                        throw new IllegalArgumentException("Error rate must be between 0 and 1: " + value);
+                    }
+                    if (colon >= 0) {
+                        errorStatus = (int) number(value.substring(colon + 1));
+                        if (errorStatus < 400 || errorStatus > 599) {
+                            throw new IllegalArgumentException("Error status must be 4xx or 5xx: " + value);
+                        }
+                    }
+                    break;
+                case "body":
+                    body = BodyShape.parse(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option '" + name + "' in '" + rule + "'");
+            }
+        }
+        return new FaultProfile(rule, method, pattern, latency, errorRate, errorStatus, body);
+    }
+
+    /**
+     * Splits on whitespace outside parentheses
+     */
+    private static List<String> tokens(String rule) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        int depth = 0;
+        for (char c : rule.toCharArray()) {
+            if (Character.isWhitespace(c) && depth == 0) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+            if (!Character.isWhitespace(c)) {
+                token.append(c);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    public boolean matches(String method, String path) {
+        return (this.method.equals("*") || this.method.equals(method)) && PATHS.match(pattern, path);
+    }
+
+    /**
+     * Counts a request and draws its delay in milliseconds
+     */
+    long nextDelay() {
+        requests.increment();
+        long delay = latency == null ? 0 : Math.min(MAX_DELAY_MILLIS, Math.round(latency.sample()));
+        delayMillis.add(delay);
+        return delay;
+    }
+
+    /**
+     * Draws whether a request fails
+     */
+    boolean nextError() {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.increment();
+            return true;
+        }
+        return false;
+    }
+
+    int getErrorStatus() {
+        return errorStatus;
+    }
+
+    BodyShape getBody() {
+        return body;
+    }
+
+    public Map<String, Object> toMap() {
+        long n = requests.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rule", rule);
+        map.put("requests", n);
+        map.put("errors", errors.sum());
+        map.put("meanDelayMillis", n == 0 ? 0.0 : (double) delayMillis.sum() / n);
+        return map;
+    }
+
+    private static double number(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number, got '" + text + "'");
+        }
+    }
+
+    /**
+     * {@code name(a,b,...)} split into the name and its top-level arguments
+     */
+    private static List<String> call(String text, String name, int arguments) {
+        if (!text.startsWith(name + "(") || !text.endsWith(")")) {
+            throw new IllegalArgumentException("Expected " + name + "(...), got '" + text + "'");
+        }
+        List<String> args = new ArrayList<>();
+        int depth = 0;
+        int start = name.length() + 1;
+        for (int i = start; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                args.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        args.add(text.substring(start, text.length() - 1));
+        if (args.size() != arguments) {
+            throw new IllegalArgumentException(name + " takes " + arguments + " argument(s): '" + text + "'");
+        }
+        return args;
+    }
+
+    private static double nonNegative(String text) {
+        double value = number(text);
+        if (value < 0) {
+            throw new IllegalArgumentException("Expected a number of at least 0, got '" + text + "'");
+        }
+        return value;
+    }
+
+    /**
+     * A distribution of delays in milliseconds
+     */
+    interface Delay {
+        double sample();
+
+        static Delay parse(String text) {
+            int paren = text.indexOf('(');
+            String name = paren < 0 ? "" : text.substring(0, paren);
+            switch (name) {
+                case "": {
+                    double millis = nonNegative(text);
+                    return () -> millis;
+                }
+                case "fixed": {
+                    double millis = nonNegative(call(text, name, 1).get(0));
+                    return () -> millis;
+                }
+                case "uniform": {
+                    List<String> args = call(text, name, 2);
+                    double min = nonNegative(args.get(0));
+                    double max = nonNegative(args.get(1));
+                    if (max < min) {
+                        throw new IllegalArgumentException("uniform needs min <= max: '" + text + "'");
+                    }
+                    return () -> min + ThreadLocalRandom.current().nextDouble() * (max - min);
+                }
+                case "lognormal": {
+                    List<String> args = call(text, name, 2);
+                    double median = nonNegative(args.get(0));
+                    double sigma = nonNegative(args.get(1));
+                    return () -> median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+                }
+                case "bimodal": {
+                    List<String> args = call(text, name, 3);
+                    double slowFraction = number(args.get(0));
+                    if (slowFraction < 0 || slowFraction > 1) {
+                        throw new IllegalArgumentException("bimodal's slow fraction must be between 0 and 1: '" + text + "'");
+                    }
+                    Delay fast = parse(args.get(1));
+                    Delay slow = parse(args.get(2));
+                    return () -> ThreadLocalRandom.current().nextDouble() < slowFraction ? slow.sample() : fast.sample();
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown latency '" + name + "'; expected fixed, uniform, " +
+                            "lognormal or bimodal");
+            }
+        }
+    }
+
+    /**
+     * How a response body is sent: chunks of {@code chunkBytes}, with
+     * {@code intervalMillis} between them
+     */
+    static final class BodyShape {
+        private final boolean stall;
+        private final int chunkBytes;
+        private final long intervalMillis;
+
+        private BodyShape(boolean stall, int chunkBytes, long intervalMillis) {
+            this.stall = stall;
+            this.chunkBytes = chunkBytes;
+            this.intervalMillis = intervalMillis;
+        }
+
+        static BodyShape parse(String text) {
+            if (text.startsWith("drip(")) {
+                List<String> args = call(text, "drip", 2);
+                int bytes = (int) number(args.get(0));
+                if (bytes < 1) {
+                    throw new IllegalArgumentException("drip needs at least 1 byte per chunk: '" + text + "'");
+                }
+                return new BodyShape(false, bytes, delay(args.get(1)));
+            }
+            if (text.startsWith("stall(")) {
+                return new BodyShape(true, 0, delay(call(text, "stall", 1).get(0)));
+            }
+            throw new IllegalArgumentException("Unknown body '" + text + "'; expected drip(bytes,ms) or stall(ms)");
+        }
+
+        private static long delay(String text) {
+            return Math.min(MAX_DELAY_MILLIS, Math.round(nonNegative(text)));
+        }
+
+        /**
+         * The size of each chunk to send a body of {@code length} bytes in
+         */
+        int chunkBytes(int length) {
+            return stall ? Math.max(1, (length + 1) / 2) : chunkBytes;
+        }
+
+        long getIntervalMillis() {
+            return intervalMillis;
+        }
+    }
+}
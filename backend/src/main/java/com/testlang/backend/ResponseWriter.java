@@ -0,0 +1,143 @@
+package com.testlang.backend;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds a JSON response from precomputed byte fragments and writes it to
+ * the servlet response with its Content-Length, for the fast path, or in
+ * pieces to a stream, for streamed responses. One writer per thread is
+ * reused, so a response allocates nothing but the decoded values.
+ */
+final class ResponseWriter {
+    private static final ThreadLocal<ResponseWriter> WRITERS = ThreadLocal.withInitial(ResponseWriter::new);
+    private static final byte[] NULL = ascii("null");
+
+    private byte[] buffer = new byte[256];
+    private int size;
+
+    private ResponseWriter() {
+    }
+
+    /**
+     * This thread's writer, emptied
+     */
+    static ResponseWriter get() {
+        ResponseWriter writer = WRITERS.get();
+        writer.size = 0;
+        return writer;
+    }
+
+    static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    ResponseWriter append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    ResponseWriter append(int value) {
+        return append((long) value);
+    }
+
+    ResponseWriter append(long value) {
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+        } else {
+            value = -value;
+        }
+        // Digits of the negated value, so that Long.MIN_VALUE works too
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+        return this;
+    }
+
+    /**
+     * Appends a JSON string literal, or null
+     */
+    ResponseWriter appendString(String value) {
+        if (value == null) {
+            return append(NULL);
+        }
+        ensure(2);
+        buffer[size++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                ensure(2);
+                buffer[size++] = '\\';
+                buffer[size++] = (byte) c;
+            } else if (c < 0x20) {
+                append(ascii(String.format("\\u%04x", (int) c)));
+            } else if (c < 0x80) {
+                ensure(1);
+                buffer[size++] = (byte) c;
+            } else {
+                int end = i + 1;
+                while (end < value.length() && value.charAt(end) >= 0x80) {
+                    end++;
+                }
+                append(value.substring(i, end).getBytes(StandardCharsets.UTF_8));
+                i = end - 1;
+            }
+        }
+        ensure(1);
+        buffer[size++] = '"';
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes what was appended to {@code out} and empties the writer
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+        size = 0;
+    }
+
+    void writeTo(HttpServletResponse response, int status, boolean appHeader) throws IOException {
+        write(response, status, appHeader, buffer, size);
+    }
+
+    /**
+     * Writes a complete precomputed body
+     */
+    static void write(HttpServletResponse response, int status, boolean appHeader, byte[] body) throws IOException {
+        write(response, status, appHeader, body, body.length);
+    }
+
+    private static void write(HttpServletResponse response, int status, boolean appHeader, byte[] body, int length)
+            throws IOException {
+        response.setStatus(status);
+        if (appHeader) {
+            response.setHeader("X-App", "TestLangDemo");
+        }
+        response.setContentType("application/json");
+        response.setContentLength(length);
+        response.getOutputStream().write(body, 0, length);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.testlang.backend;
+
+/**
+ * Synthetic user records for the streamed endpoints. A record depends only
+ * on the seed and its index, so any page of any response can be generated
+ * on its own and is the same on every run:
+ * <pre>
+ *   {"id":1,"username":"user1","email":"user1@example.com","role":"USER","score":48213,
+ *    "active":true,"tags":["beta","mobile"],"bio":"lorem ipsum ..."}
+ * </pre>
+ * Records are about 150 to 300 bytes.
+ */
+final class SeededRecords {
+    private static final byte[] ID = ResponseWriter.ascii("{\"id\":");
+    private static final byte[] USERNAME = ResponseWriter.ascii(",\"username\":\"user");
+    private static final byte[] EMAIL = ResponseWriter.ascii("\",\"email\":\"user");
+    private static final byte[] ROLE = ResponseWriter.ascii("@example.com\",\"role\":\"");
+    private static final byte[] SCORE = ResponseWriter.ascii("\",\"score\":");
+    private static final byte[] ACTIVE = ResponseWriter.ascii(",\"active\":");
+    private static final byte[] TAGS = ResponseWriter.ascii(",\"tags\":[");
+    private static final byte[] BIO = ResponseWriter.ascii("],\"bio\":\"");
+    private static final byte[] END = ResponseWriter.ascii("\"}");
+    private static final byte[] TRUE = ResponseWriter.ascii("true");
+    private static final byte[] FALSE = ResponseWriter.ascii("false");
+    private static final byte[] COMMA = ResponseWriter.ascii(",");
+    private static final byte[] QUOTE = ResponseWriter.ascii("\"");
+    private static final byte[] SPACE = ResponseWriter.ascii(" ");
+
+    private static final byte[][] ROLES = words("USER", "USER", "USER", "ADMIN", "EDITOR", "VIEWER");
+    private static final byte[][] TAG_WORDS = words("beta", "mobile", "desktop", "trial", "premium", "legacy",
+            "eu", "us", "apac", "internal");
+    private static final byte[][] BIO_WORDS = words("lorem", "ipsum", "dolor", "sit", "amet", "consectetur",
+            "adipiscing", "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore",
+            "magna", "aliqua", "enim", "ad", "minim", "veniam", "quis", "nostrud", "exercitation", "ullamco",
+            "laboris", "nisi", "aliquip", "ex", "ea");
+
+    private SeededRecords() {
+    }
+
+    /**
+     * Appends the record at {@code index}; its id is {@code index + 1}
+     */
+    static void append(ResponseWriter writer, long seed, long index) {
+        long state = seed * 0x9E3779B97F4A7C15L + index;
+        long random = mix(state += 0x9E3779B97F4A7C15L);
+        long id = index + 1;
+        writer.append(ID).append(id)
+                .append(USERNAME).append(id)
+                .append(EMAIL).append(id)
+                .append(ROLE).append(pick(ROLES, random))
+                .append(SCORE).append((random >>> 8) % 100_000)
+                .append(ACTIVE).append(random < 0 ? TRUE : FALSE)
+                .append(TAGS);
+        random = mix(state += 0x9E3779B97F4A7C15L);
+        int tags = (int) ((random >>> 60) % 4);
+        for (int i = 0; i < tags; i++) {
+            if (i > 0) {
+                writer.append(COMMA);
+            }
+            writer.append(QUOTE).append(pick(TAG_WORDS, random >>> (i * 8))).append(QUOTE);
+        }
+        writer.append(BIO);
+        int words = 8 + (int) ((random >>> 40) % 24);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                writer.append(SPACE);
+            }
+            if (i % 8 == 0) {
+                random = mix(state += 0x9E3779B97F4A7C15L);
+            }
+            writer.append(pick(BIO_WORDS, random >>> (i % 8 * 8)));
+        }
+        writer.append(END);
+    }
+
+    private static byte[] pick(byte[][] words, long random) {
+        return words[(int) ((random & 0xFF) % words.length)];
+    }
+
+    /**
+     * SplitMix64's output function
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static byte[][] words(String... words) {
+        byte[][] bytes = new byte[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            bytes[i] = ResponseWriter.ascii(words[i]);
+        }
+        return bytes;
+    }
+}
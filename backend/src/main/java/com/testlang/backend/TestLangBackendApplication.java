@@ -1,11 +1,43 @@
 package com.testlang.backend;
 
+import com.testlang.backend.common.UserStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+
+import javax.servlet.DispatcherType;
 
 @SpringBootApplication
 public class TestLangBackendApplication {
     public static void main(String[] args) {
         SpringApplication.run(TestLangBackendApplication.class, args);
     }
+
+    /**
+     * The users behind /api/users, shared by ApiController and FastApiController
+     */
+    @Bean
+    public UserStore userStore(@Value("${testlang.users.stripes:64}") int stripes,
+                               @Value("${testlang.users.preload:1000000}") int preload) {
+        return new UserStore(stripes, preload);
+    }
+
+    @Bean
+    public FaultInjectionFilter faultInjectionFilter(@Value("${testlang.faults:}") String rules) {
+        return new FaultInjectionFilter(rules);
+    }
+
+    /**
+     * Runs the filter again when a delayed request is dispatched back
+     */
+    @Bean
+    public FilterRegistrationBean<FaultInjectionFilter> faultInjectionRegistration(FaultInjectionFilter filter) {
+        FilterRegistrationBean<FaultInjectionFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/*");
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setAsyncSupported(true);
+        return registration;
+    }
 }
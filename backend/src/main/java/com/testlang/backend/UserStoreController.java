@@ -0,0 +1,44 @@
+package com.testlang.backend;
+
+import com.testlang.backend.common.UserStore;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class UserStoreController {
+    private final UserStore users;
+
+    public UserStoreController(UserStore users) {
+        this.users = users;
+    }
+
+    /**
+     * GET /api/users/stats - Number of users and lock contention
+     */
+    @GetMapping("/users/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .body(users.stats());
+    }
+
+    /**
+     * POST /api/users/reset - Restore the preloaded users, for a suite that
+     * must start from known data
+     */
+    @PostMapping("/users/reset")
+    public ResponseEntity<Map<String, Object>> reset() {
+        users.reset();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("reset", true);
+        response.put("users", users.stats().get("users"));
+
+        return ResponseEntity.ok()
+                .header("Content-Type", "application/json")
+                .body(response);
+    }
+}
@@ -0,0 +1,112 @@
+package com.testlang.benchmarks;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.runtime.BodyCheck;
+import com.testlang.runtime.BodyChecks;
+import com.testlang.runtime.BufferPool;
+import com.testlang.runtime.CheckingBodySubscriber;
+import com.testlang.runtime.JsonPathMatcher;
+import com.testlang.runtime.MultiPatternMatcher;
+import com.testlang.runtime.PooledBodySubscriber;
+
+/**
+ * Bytes allocated per response by the body subscribers.
+ *
+ * Each operation pushes one response body through a subscriber, in 16 KB
+ * chunks as the JDK client delivers them, and evaluates two substring and
+ * two JSON path assertions. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm} (bytes per operation).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BodySubscriberAllocationBenchmark {
+    private static final String[] PATTERNS = { "\"id\":", "\"last\":true" };
+    private static final String[] PATHS = { "$.id", "$.last" };
+
+    @Param({ "1024", "65536", "1048576" })
+    public int bodySize;
+
+    private List<List<ByteBuffer>> chunks;
+    private BodyCheck reusedCheck;
+    private BufferPool pool;
+
+    @Setup
+    public void setup() {
+        byte[] body = Corpus.jsonBody(bodySize, 42);
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += 16 * 1024) {
+            int length = Math.min(16 * 1024, body.length - offset);
+            chunks.add(List.of(ByteBuffer.wrap(body, offset, length).slice()));
+        }
+        reusedCheck = BodyChecks.all(new MultiPatternMatcher(PATTERNS), new JsonPathMatcher(PATHS));
+        pool = new BufferPool(64 * 1024, 16);
+    }
+
+    @Benchmark
+    public boolean ofString() {
+        HttpResponse.BodySubscriber<String> subscriber = HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+        drive(subscriber);
+        String body = subscriber.getBody().toCompletableFuture().join();
+        return body.contains(PATTERNS[0]) && body.contains(PATTERNS[1]);
+    }
+
+    @Benchmark
+    public boolean checking() {
+        MultiPatternMatcher patterns = new MultiPatternMatcher(PATTERNS);
+        JsonPathMatcher json = new JsonPathMatcher(PATHS);
+        drive(new CheckingBodySubscriber(BodyChecks.all(patterns, json)));
+        return patterns.found(PATTERNS[0]) && json.hasValue(PATHS[0], 42);
+    }
+
+    @Benchmark
+    public boolean pooled() {
+        reusedCheck.reset();
+        drive(new PooledBodySubscriber(reusedCheck, pool, Long.MAX_VALUE));
+        return true;
+    }
+
+    private void drive(HttpResponse.BodySubscriber<?> subscriber) {
+        subscriber.onSubscribe(NoOpSubscription.INSTANCE);
+        for (int i = 0; i < chunks.size(); i++) {
+            List<ByteBuffer> items = chunks.get(i);
+            items.get(0).rewind();
+            subscriber.onNext(items);
+        }
+        subscriber.onComplete();
+    }
+
+    private enum NoOpSubscription implements Flow.Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.testlang.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.ast.Program;
+import com.testlang.codegen.CodeGenerator;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.parser;
+
+/**
+ * JUnit code generation from an already parsed program
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CodeGeneratorBenchmark {
+    @Param({ "10", "10000" })
+    public int tests;
+
+    @Param({ "20", "1000" })
+    public int variables;
+
+    private Program program;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setup() throws Exception {
+        String source = Corpus.program(tests, 6, 64, variables, 42);
+        program = (Program) new parser(new Lexer(new StringReader(source))).parse().value;
+    }
+
+    @Benchmark
+    public String generate() {
+        return new CodeGenerator(program).generate();
+    }
+}
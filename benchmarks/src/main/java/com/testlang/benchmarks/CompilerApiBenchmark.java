@@ -0,0 +1,67 @@
+package com.testlang.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.TestLangCompiler;
+import com.testlang.ast.Program;
+import com.testlang.codegen.CodeGenerator;
+import com.testlang.parser.Diagnostics;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.parser;
+
+/**
+ * Compiling small suites from 8 threads, the way a validation service
+ * does: through one shared {@link TestLangCompiler}, which takes lexers
+ * and parsers from a pool, and with a new JFlex lexer and parser per
+ * suite, as every parse did before the pool
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CompilerApiBenchmark {
+    @Param({ "1", "10" })
+    public int tests;
+
+    private String source;
+    private TestLangCompiler compiler;
+
+    @Setup
+    public void setup() {
+        source = Corpus.program(tests, 6, 64, 20, 42);
+        compiler = new TestLangCompiler();
+    }
+
+    @Benchmark
+    public String sharedCompiler() throws Exception {
+        return compiler.compile(new StringReader(source)).getCode();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String newLexerAndParser() throws Exception {
+        Diagnostics diagnostics = new Diagnostics(null);
+        Lexer lexer = new Lexer(new StringReader(source));
+        lexer.setDiagnostics(diagnostics);
+        parser p = new parser(lexer);
+        p.setDiagnostics(diagnostics);
+        return new CodeGenerator((Program) p.parse().value).generate();
+    }
+}
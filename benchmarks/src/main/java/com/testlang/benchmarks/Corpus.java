@@ -0,0 +1,147 @@
+package com.testlang.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks.
+ *
+ * Run as a program to write a .test corpus:
+ * {@code java -cp target/benchmarks.jar com.testlang.benchmarks.Corpus out.test [tests] [statements] [bodySize] [variables] [seed]}
+ */
+public final class Corpus {
+    private static final String[] METHODS = { "GET", "POST", "PUT", "DELETE" };
+
+    private Corpus() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Corpus <output.test> [tests] [statements] [bodySize] [variables] [seed]");
+            System.exit(1);
+        }
+        int tests = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int statements = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int bodySize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int variables = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+        String program = program(tests, statements, bodySize, variables, seed);
+        Files.write(Paths.get(args[0]), program.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + tests + " test(s), " + program.length() + " characters to " + args[0]);
+    }
+
+    /**
+     * A valid TestLang++ program.
+     *
+     * @param tests      number of test blocks
+     * @param statements statements per test; every test gets one request and
+     *                   at least two assertions, and every fourth statement
+     *                   starts a new request
+     * @param bodySize   approximate length of each request body
+     * @param variables  number of {@code let} declarations, referenced from paths and bodies
+     * @param seed       seed for all random choices
+     */
+    public static String program(int tests, int statements, int bodySize, int variables, long seed) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder();
+        out.append("config {\n");
+        out.append("  base_url = \"http://localhost:8080\";\n");
+        out.append("  header \"Content-Type\" = \"application/json\";\n");
+        out.append("}\n\n");
+
+        for (int v = 0; v < variables; v++) {
+            if (v % 2 == 0) {
+                out.append("let var").append(v).append(" = \"value").append(v).append("\";\n");
+            } else {
+                out.append("let var").append(v).append(" = ").append(v * 7).append(";\n");
+            }
+        }
+        out.append('\n');
+
+        for (int t = 0; t < tests; t++) {
+            out.append("// Generated test ").append(t).append('\n');
+            out.append("test Test").append(t).append(" {\n");
+            int count = Math.max(3, statements);
+            for (int s = 0; s < count; s++) {
+                if (s % 4 == 0) {
+                    appendRequest(out, random, bodySize, variables);
+                } else {
+                    appendAssertion(out, random);
+                }
+            }
+            out.append("}\n\n");
+        }
+        return out.toString();
+    }
+
+    private static void appendRequest(StringBuilder out, Random random, int bodySize, int variables) {
+        String method = METHODS[random.nextInt(METHODS.length)];
+        out.append("  ").append(method).append(" \"/api/users/");
+        if (variables > 0) {
+            out.append('$').append("var").append(random.nextInt(variables));
+        } else {
+            out.append(random.nextInt(1000));
+        }
+        out.append('"');
+        if ("POST".equals(method) || "PUT".equals(method)) {
+            out.append(" {\n");
+            out.append("    header \"X-Request\" = \"r").append(random.nextInt(100)).append("\";\n");
+            out.append("    body = \"{ ");
+            int length = 0;
+            int field = 0;
+            while (length < bodySize) {
+                String entry = "\\\"f" + field + "\\\": \\\""
+                        + (variables > 0 ? "$var" + random.nextInt(variables) : "v" + field) + "\\\", ";
+                out.append(entry);
+                length += entry.length();
+                field++;
+            }
+            out.append("\\\"end\\\": true }\";\n");
+            out.append("  }");
+        }
+        out.append(";\n");
+    }
+
+    private static void appendAssertion(StringBuilder out, Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                out.append("  expect status = 200;\n");
+                break;
+            case 1:
+                out.append("  expect status in 200..299;\n");
+                break;
+            case 2:
+                out.append("  expect header \"Content-Type\" contains \"json\";\n");
+                break;
+            case 3:
+                out.append("  expect body contains \"\\\"id\\\":\";\n");
+                break;
+            default:
+                out.append("  expect json \"$.id\" = ").append(random.nextInt(1000)).append(";\n");
+                break;
+        }
+    }
+
+    /**
+     * A JSON object of roughly {@code size} bytes: an id first, a long
+     * array of items, and a final field that is only found by reading
+     * the whole body
+     */
+    public static byte[] jsonBody(int size, int id) {
+        StringBuilder json = new StringBuilder(size + 64);
+        json.append("{\"id\":").append(id).append(",\"items\":[");
+        int n = 0;
+        while (json.length() < size - 32) {
+            if (n > 0) {
+                json.append(',');
+            }
+            json.append("{\"n\":").append(n).append(",\"name\":\"item-").append(n).append("\"}");
+            n++;
+        }
+        json.append("],\"last\":true}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
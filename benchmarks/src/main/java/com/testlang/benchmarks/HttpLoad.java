@@ -0,0 +1,191 @@
+package com.testlang.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Closed-loop HTTP/1.1 load: each connection sends a GET, or a POST or PUT
+ * of a JSON body, reads the whole response and sends the next, over one
+ * keep-alive socket. Prints requests per second and latency percentiles.
+ *
+ * Not a JMH benchmark; a server is measured from outside its JVM:
+ * {@code java -cp target/benchmarks.jar com.testlang.benchmarks.HttpLoad http://localhost:8080/api/users/42 [connections] [seconds] [json body] [POST|PUT]}
+ */
+public final class HttpLoad {
+    private HttpLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args[0]);
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String body = args.length > 3 ? args[3] : null;
+        String method = body == null ? "GET" : args.length > 4 ? args[4] : "POST";
+        String target = uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        byte[] request = (body == null
+                ? "GET " + target + " HTTP/1.1\r\nHost: " + uri.getHost() + "\r\n\r\n"
+: method + " " + target + " HTTP/1.1\r\nHost: " + uri.getHost() + "\r\nContent-Type: application/json\r\n" +
+                  "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body)
+                .getBytes(StandardCharsets.UTF_8);
+
+        // One second of warm-up, then the measured run
+        run(uri, request, connections, 1);
+        Result result = run(uri, request, connections, seconds);
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        System.out.printf("%s%s, %d connections, %d s: %,.0f req/s, p50 %.2f ms, p99 %.2f ms, %d errors%n",
+                method + " ", uri, connections, seconds, latencies.length / (double) seconds,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6, result.errors);
+    }
+
+    private static Result run(URI uri, byte[] request, int connections, int seconds) throws InterruptedException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Worker worker = new Worker(uri, request, end);
+            workers.add(worker);
+            worker.start();
+        }
+        Result result = new Result();
+        List<long[]> all = new ArrayList<>();
+        int total = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            all.add(Arrays.copyOf(worker.latencies, worker.count));
+            total += worker.count;
+            result.errors += worker.errors;
+        }
+        result.latencies = new long[total];
+        int offset = 0;
+        for (long[] latencies : all) {
+            System.arraycopy(latencies, 0, result.latencies, offset, latencies.length);
+            offset += latencies.length;
+        }
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static final class Result {
+        long[] latencies;
+        int errors;
+    }
+
+    private static final class Worker extends Thread {
+        private final URI uri;
+        private final byte[] request;
+        private final long end;
+        long[] latencies = new long[1 << 16];
+        int count;
+        int errors;
+        // The server closes the connection after the last response
+        private boolean close;
+
+        Worker(URI uri, byte[] request, long end) {
+            this.uri = uri;
+            this.request = request;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < end) {
+                try (Socket socket = new Socket(uri.getHost(), uri.getPort())) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    close = false;
+                    while (!close && System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        out.write(request);
+                        out.flush();
+                        if (!readResponse(in)) {
+                            errors++;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                } catch (IOException e) {
+                    errors++;
+                }
+            }
+        }
+
+        /**
+         * Reads one response, with a Content-Length or a chunked body
+         *
+         * @return whether its status was 2xx
+         */
+        private boolean readResponse(InputStream in) throws IOException {
+            boolean ok = readLine(in).startsWith("HTTP/1.1 2");
+            long contentLength = 0;
+            boolean chunked = false;
+            for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Long.parseLong(header.substring(15).trim());
+                } else if (header.regionMatches(true, 0, "Transfer-Encoding:", 0, 18)) {
+                    chunked = header.substring(18).trim().equalsIgnoreCase("chunked");
+                } else if (header.regionMatches(true, 0, "Connection:", 0, 11)) {
+                    close = header.substring(11).trim().equalsIgnoreCase("close");
+                }
+            }
+            if (!chunked) {
+                skip(in, contentLength);
+                return ok;
+            }
+            for (long size = chunkSize(in); size > 0; size = chunkSize(in)) {
+                skip(in, size);
+                readLine(in);
+            }
+            // Trailers end with an empty line
+            while (!readLine(in).isEmpty()) {
+                continue;
+            }
+            return ok;
+        }
+
+        private static long chunkSize(InputStream in) throws IOException {
+            String line = readLine(in);
+            int extension = line.indexOf(';');
+            return Long.parseLong(extension < 0 ? line.trim() : line.substring(0, extension).trim(), 16);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) {
+                    throw new IOException("Connection closed");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        private static void skip(InputStream in, long length) throws IOException {
+            for (long skipped = 0; skipped < length; ) {
+                long n = in.skip(length - skipped);
+                if (n <= 0) {
+                    if (in.read() < 0) {
+                        throw new IOException("Connection closed");
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+        }
+    }
+}
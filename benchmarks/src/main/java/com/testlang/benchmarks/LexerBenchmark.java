@@ -0,0 +1,66 @@
+package com.testlang.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.parser.FastLexer;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.sym;
+
+/**
+ * Token throughput of the JFlex lexer and of {@link FastLexer} over a
+ * synthetic corpus
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+    @Param({ "10", "10000" })
+    public int tests;
+
+    @Param({ "64" })
+    public int bodySize;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = Corpus.program(tests, 6, bodySize, 20, 42);
+    }
+
+    @Benchmark
+    public int tokens() throws IOException {
+        Lexer lexer = new Lexer(new StringReader(source));
+        int count = 0;
+        while (lexer.next_token().sym != sym.EOF) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int fastTokens() {
+        FastLexer lexer = new FastLexer(source);
+        int count = 0;
+        while (lexer.next_token().sym != sym.EOF) {
+            count++;
+        }
+        return count;
+    }
+}
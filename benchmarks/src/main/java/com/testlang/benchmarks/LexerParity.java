@@ -0,0 +1,142 @@
+package com.testlang.benchmarks;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.testlang.parser.Diagnostics;
+import com.testlang.parser.FastLexer;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.sym;
+
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+
+/**
+ * Differential check of {@link FastLexer} against the JFlex {@link Lexer}.
+ *
+ * Lexes generated programs and random mutations of them with both lexers
+ * and compares every token (kind, line, column, value) and the error that
+ * ends the input, if any. Each input is lexed twice: once throwing on the
+ * first illegal character, and once reporting illegal characters to
+ * {@link Diagnostics} and going on. Not a JMH benchmark:
+ * {@code java -cp target/benchmarks.jar com.testlang.benchmarks.LexerParity [inputs] [seed]}
+ * Exits with status 1 on the first mismatch.
+ */
+public final class LexerParity {
+    // Fragments that exercise the edges of the token rules
+    private static final String[] FRAGMENTS = {
+        "\"", "\"\"", "\"\"\"", "\\", "\\\"", "\\\\", "\\n", "\r", "\n", "\r\n", "\n\r", "\t", " ", "\f",
+        "\u000B", "\u0085", "\u2028", "\u2029", ".", "..", "...", "/", "//", "{", "}", ";", "=",
+        "0", "42", "007", "2147483647", "2147483648", "99999999999", "_", "x1", "base_url", "config",
+        "GETX", "in", "int", "true", "false", "json", "é", "\uD83D\uDE00", "\uD800", "#", "$id", "ü\"",
+        "(", ")", ",", "tags", "import",
+    };
+
+    private LexerParity() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int inputs = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        Random random = new Random(seed);
+
+        int tokens = 0;
+        int errors = 0;
+        int recovered = 0;
+        for (int i = 0; i < inputs; i++) {
+            String input = i % 10 == 0
+                    ? Corpus.program(1 + random.nextInt(5), 3 + random.nextInt(6), random.nextInt(80), random.nextInt(6), random.nextLong())
+                    : mutate(Corpus.program(1, 4, 16, 2, random.nextLong()), random);
+            List<String> expected = lex(new Lexer(new StringReader(input)));
+            List<String> actual = lex(new FastLexer(input));
+            if (!expected.equals(actual)) {
+                report(input, expected, actual);
+                System.exit(1);
+            }
+            tokens += expected.size() - 1;
+            if (!expected.get(expected.size() - 1).equals("EOF")) {
+                errors++;
+            }
+
+            Diagnostics jflexDiagnostics = new Diagnostics(null);
+            Lexer jflex = new Lexer(new StringReader(input));
+            jflex.setDiagnostics(jflexDiagnostics);
+            Diagnostics fastDiagnostics = new Diagnostics(null);
+            FastLexer fast = new FastLexer(input);
+            fast.setDiagnostics(fastDiagnostics);
+            expected = lex(jflex);
+            actual = lex(fast);
+            expected.add(jflexDiagnostics.getErrors().toString());
+            actual.add(fastDiagnostics.getErrors().toString());
+            if (!expected.equals(actual)) {
+                report(input, expected, actual);
+                System.exit(1);
+            }
+            recovered += expected.size() - 2;
+        }
+        System.out.println("Parity on " + inputs + " inputs: " + tokens + " tokens, " + errors + " inputs ending in an error; "
+                + recovered + " tokens when illegal characters are reported and skipped");
+    }
+
+    private static String mutate(String program, Random random) {
+        StringBuilder input = new StringBuilder(program);
+        int edits = 1 + random.nextInt(8);
+        for (int e = 0; e < edits; e++) {
+            int at = random.nextInt(input.length() + 1);
+            switch (random.nextInt(3)) {
+                case 0:
+                    input.insert(at, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                    break;
+                case 1:
+                    if (at < input.length()) {
+                        input.delete(at, Math.min(input.length(), at + 1 + random.nextInt(4)));
+                    }
+                    break;
+                default:
+                    input.insert(at, (char) random.nextInt(0x80));
+                    break;
+            }
+        }
+        if (Character.isHighSurrogate(input.charAt(input.length() - 1))) {
+            // The JFlex lexer reads input that ends in a lone high surrogate as empty; not worth copying
+            input.append(' ');
+        }
+        return input.toString();
+    }
+
+    /**
+     * Every token as text, ending with "EOF" or the error that stopped the lexer
+     */
+    private static List<String> lex(Scanner scanner) {
+        List<String> tokens = new ArrayList<>();
+        try {
+            while (true) {
+                Symbol token = scanner.next_token();
+                if (token.sym == sym.EOF) {
+                    tokens.add("EOF");
+                    return tokens;
+                }
+                tokens.add(sym.terminalNames[token.sym] + "@" + token.left + ":" + token.right +
+                        (token.value != null ? "=" + token.value : ""));
+            }
+        } catch (Throwable t) {
+            tokens.add(t.getClass().getName() + ": " + t.getMessage());
+            return tokens;
+        }
+    }
+
+    private static void report(String input, List<String> expected, List<String> actual) {
+        System.out.println("Mismatch on input:");
+        System.out.println(input.replace("\r", "\\r").replace("\f", "\\f"));
+        for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            String jflex = i < expected.size() ? expected.get(i) : "-";
+            String fast = i < actual.size() ? actual.get(i) : "-";
+            if (!jflex.equals(fast)) {
+                System.out.println("token " + i + ": jflex " + jflex + ", fast " + fast);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.testlang.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.parser.Diagnostics;
+import com.testlang.parser.ModuleResolver;
+
+/**
+ * Loading a batch of suites that all import the same {@code common.test},
+ * with one {@link ModuleResolver} for the batch and with a new resolver per
+ * suite, which parses the common file again for every suite
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleCacheBenchmark {
+    @Param({ "100" })
+    public int suites;
+
+    @Param({ "1000" })
+    public int variables;
+
+    private Path directory;
+    private Path[] files;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("testlang-modules");
+        // Only the config block and the let declarations
+        write(directory.resolve("common.test"), Corpus.program(0, 4, 64, variables, 1));
+        files = new Path[suites];
+        for (int i = 0; i < suites; i++) {
+            files[i] = directory.resolve("suite" + i + ".test");
+            write(files[i], "import \"common.test\";\n" + Corpus.program(5, 6, 64, 0, i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int sharedResolver() throws Exception {
+        ModuleResolver resolver = new ModuleResolver(false);
+        int tests = 0;
+        for (Path file : files) {
+            tests += resolver.load(file, new Diagnostics(file.toString())).getTests().size();
+        }
+        return tests;
+    }
+
+    @Benchmark
+    public int resolverPerSuite() throws Exception {
+        int tests = 0;
+        for (Path file : files) {
+            tests += new ModuleResolver(false).load(file, new Diagnostics(file.toString())).getTests().size();
+        }
+        return tests;
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+}
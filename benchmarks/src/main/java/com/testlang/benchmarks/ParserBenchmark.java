@@ -0,0 +1,47 @@
+package com.testlang.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.ast.Program;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.parser;
+
+/**
+ * Lexing plus parsing into the AST, for small and huge programs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    @Param({ "10", "10000" })
+    public int tests;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = Corpus.program(tests, 6, 64, 20, 42);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Program parse() throws Exception {
+        return (Program) new parser(new Lexer(new StringReader(source))).parse().value;
+    }
+}
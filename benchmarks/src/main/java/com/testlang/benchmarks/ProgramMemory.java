@@ -0,0 +1,177 @@
+package com.testlang.benchmarks;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.testlang.ast.Assertion;
+import com.testlang.ast.AstVisitor;
+import com.testlang.ast.CompactProgram;
+import com.testlang.ast.ConfigBlock;
+import com.testlang.ast.ConfigItem;
+import com.testlang.ast.Program;
+import com.testlang.ast.Request;
+import com.testlang.ast.RequestItem;
+import com.testlang.ast.Statement;
+import com.testlang.ast.TestBlock;
+import com.testlang.ast.Value;
+import com.testlang.ast.Variable;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.parser;
+
+/**
+ * Retained heap of a parsed program, as a node tree and as a {@link CompactProgram}.
+ *
+ * The node tree is a deep copy of the parsed program with a new String for
+ * every token and an ArrayList per list, the way the parser
+ * built it before programs were compact. Not a JMH benchmark; run it with a
+ * fixed heap so that the numbers are comparable:
+ * {@code java -Xms4g -Xmx4g -cp target/benchmarks.jar com.testlang.benchmarks.ProgramMemory [tests...]}
+ */
+public final class ProgramMemory {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private ProgramMemory() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[] { 1_000, 10_000, 100_000 };
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        // Load and initialize the parser classes before the first measurement
+        copy(parse(Corpus.program(100, 6, 64, 20, 1)).asProgram());
+        usedHeap();
+
+        System.out.printf("%10s %12s %14s %14s %8s%n", "tests", "statements", "node tree", "compact", "ratio");
+        for (int tests : sizes) {
+            String source = Corpus.program(tests, 6, 64, 20, 42);
+
+            long before = usedHeap();
+            CompactProgram compact = parse(source);
+            long compactBytes = usedHeap() - before;
+
+            before = usedHeap();
+            Program tree = copy(compact.asProgram());
+            long treeBytes = usedHeap() - before;
+
+            System.out.printf("%10d %12d %14s %14s %7.1fx%n", tests, compact.getStatementCount(),
+                    megabytes(treeBytes), megabytes(compactBytes), (double) treeBytes / compactBytes);
+            Reference.reachabilityFence(tree);
+            Reference.reachabilityFence(compact);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static CompactProgram parse(String source) throws Exception {
+        parser p = new parser(new Lexer(new StringReader(source)));
+        p.parse();
+        return p.getCompactProgram();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static Program copy(Program program) {
+        ConfigBlock config = null;
+        if (program.getConfig() != null) {
+            List<ConfigItem> items = new ArrayList<>();
+            for (ConfigItem item : program.getConfig().getItems()) {
+                switch (item.getKind()) {
+                    case BASE_URL:
+                        items.add(ConfigItem.baseUrl(fresh(item.getValue())));
+                        break;
+                    case HEADER:
+                        items.add(ConfigItem.header(fresh(item.getKey()), fresh(item.getValue())));
+                        break;
+                    default:
+                        items.add(ConfigItem.setting(fresh(item.getKey()), fresh(item.getValue())));
+                        break;
+                }
+            }
+            config = new ConfigBlock(items);
+        }
+        List<Variable> variables = new ArrayList<>();
+        for (Variable variable : program.getVariables()) {
+            variables.add(new Variable(fresh(variable.getName()), copy(variable.getValue())));
+        }
+        List<TestBlock> tests = new ArrayList<>();
+        StatementCopier copier = new StatementCopier();
+        for (TestBlock test : program.getTests()) {
+            List<Statement> statements = new ArrayList<>();
+            for (Statement statement : test.getStatements()) {
+                statements.add(statement.accept(copier));
+            }
+            List<String> tags = new ArrayList<>();
+            for (String tag : test.getTags()) {
+                tags.add(fresh(tag));
+            }
+            tests.add(new TestBlock(fresh(test.getName()), tags, statements));
+        }
+        return new Program(config, variables, tests);
+    }
+
+    private static Value copy(Value value) {
+        switch (value.getKind()) {
+            case STRING:
+                return new Value(fresh(value.getStringValue()));
+            case NUMBER:
+                return new Value(value.intValue());
+            default:
+                return new Value(value.booleanValue());
+        }
+    }
+
+    /**
+     * A distinct copy, as the lexer makes one per token
+     */
+    private static String fresh(String text) {
+        return new String(text.toCharArray());
+    }
+
+    private static final class StatementCopier implements AstVisitor<Statement> {
+        @Override
+        public Statement visitRequest(Request request) {
+            List<RequestItem> items = new ArrayList<>();
+            for (RequestItem item : request.getItems()) {
+                if (item.getKind() == RequestItem.Kind.BODY) {
+                    items.add(RequestItem.body(fresh(item.getValue())));
+                } else {
+                    items.add(RequestItem.header(fresh(item.getKey()), fresh(item.getValue())));
+                }
+            }
+            return new Request(request.getHttpMethod(), fresh(request.getPath()), items);
+        }
+
+        @Override
+        public Statement visitAssertion(Assertion assertion) {
+            switch (assertion.getKind()) {
+                case STATUS_EQUALS:
+                    return Assertion.statusEquals(assertion.getStatus());
+                case STATUS_RANGE:
+                    return Assertion.statusRange(assertion.getStatus(), assertion.getRangeEnd());
+                case HEADER_EQUALS:
+                    return Assertion.headerEquals(fresh(assertion.getHeaderName()), fresh(assertion.getText()));
+                case HEADER_CONTAINS:
+                    return Assertion.headerContains(fresh(assertion.getHeaderName()), fresh(assertion.getText()));
+                case BODY_CONTAINS:
+                    return Assertion.bodyContains(fresh(assertion.getText()));
+                case JSON_EQUALS:
+                    return Assertion.jsonEquals(fresh(assertion.getPath()), copy(assertion.getExpected()));
+                default:
+                    return Assertion.jsonContains(fresh(assertion.getPath()), fresh(assertion.getText()));
+            }
+        }
+    }
+}
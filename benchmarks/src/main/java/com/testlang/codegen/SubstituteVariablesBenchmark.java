@@ -0,0 +1,74 @@
+package com.testlang.codegen;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.testlang.ast.Program;
+import com.testlang.benchmarks.Corpus;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.parser;
+
+/**
+ * Cost of turning one request body with $variables into the Java
+ * expression that binds it at class initialization.
+ *
+ * {@link #substitute} tokenizes the body and builds its expression, which
+ * is what the generator pays the first time it sees a string.
+ * {@link #repeated} is a string the generator has already tokenized, so it
+ * skips tokenizing. Lives in the codegen package to reach the
+ * package-private methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubstituteVariablesBenchmark {
+    @Param({ "10", "1000" })
+    public int variables;
+
+    @Param({ "64", "4096" })
+    public int length;
+
+    private CodeGenerator generator;
+    private String text;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setup() throws Exception {
+        String source = Corpus.program(1, 3, 0, variables, 42);
+        Program program = (Program) new parser(new Lexer(new StringReader(source))).parse().value;
+        generator = new CodeGenerator(program);
+        // Populates the generator's variable table
+        generator.generate();
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; body.length() < length; i++) {
+            body.append("{\"f").append(i).append("\": \"$var").append(i % variables).append("\"} ");
+        }
+        text = body.toString();
+    }
+
+    @Benchmark
+    public String substitute() {
+        return generator.expression(Template.compile(text), "benchmark");
+    }
+
+    @Benchmark
+    public String repeated() {
+        return generator.expression(text, "benchmark");
+    }
+}
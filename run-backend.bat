@@ -6,6 +6,25 @@ echo Building Backend Server
 echo ========================================
 echo.
 
+echo Installing the compiler library...
+call mvn -q install -DskipTests
+
+if %ERRORLEVEL% NEQ 0 (
+    echo Build failed!
+    exit /b 1
+)
+
+echo Installing the shared user store...
+cd backend-common
+call mvn -q install
+
+if %ERRORLEVEL% NEQ 0 (
+    echo Build failed!
+    cd ..
+    exit /b 1
+)
+
+cd ..
 cd backend
 
 echo Cleaning and building...
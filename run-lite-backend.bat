@@ -0,0 +1,41 @@
+@echo off
+REM Build and run the lite backend server
+
+echo ========================================
+echo Building Lite Backend Server
+echo ========================================
+echo.
+
+echo Installing the shared user store...
+cd backend-common
+call mvn -q install
+
+if %ERRORLEVEL% NEQ 0 (
+    echo Build failed!
+    cd ..
+    exit /b 1
+)
+
+cd ..
+cd backend-lite
+
+echo Cleaning and building...
+call mvn clean package
+
+if %ERRORLEVEL% NEQ 0 (
+    echo Build failed!
+    cd ..
+    exit /b 1
+)
+
+echo.
+echo ========================================
+echo Starting Lite Backend Server
+echo ========================================
+echo Server will run on http://localhost:8080
+echo Press Ctrl+C to stop the server
+echo.
+
+java -jar target\testlang-lite-backend-0.0.1-SNAPSHOT.jar %*
+
+cd ..
@@ -14,7 +14,7 @@ echo Compiling GeneratedTests.java...
 call mvn dependency:copy-dependencies -DoutputDirectory=lib -q
 
 echo Compiling GeneratedTests.java with JUnit...
-javac -cp "lib\*" -d test-output GeneratedTests.java
+javac -cp "lib\*;target\testlang-java-1.0.0.jar" -d test-output GeneratedTests.java
 
 if %ERRORLEVEL% NEQ 0 (
     echo Compilation failed!
@@ -48,7 +48,7 @@ if not exist "lib\junit-platform-console-standalone.jar" (
 )
 
 REM Run the tests using JUnit Platform Console Launcher
-java -jar lib\junit-platform-console-standalone.jar --class-path test-output --scan-class-path
+java -jar lib\junit-platform-console-standalone.jar --class-path "test-output;target\testlang-java-1.0.0.jar" --scan-class-path
 
 echo.
 echo ========================================
@@ -0,0 +1,56 @@
+package com.testlang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line arguments: positional arguments plus {@code --name value}
+ * and {@code --name=value} options
+ */
+class CommandLine {
+    private final List<String> positional = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+
+    /**
+     * @param valued names of the options
+     * @throws IllegalArgumentException for an unknown option or a missing value
+     */
+    CommandLine(String[] args, Set<String> valued) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+                continue;
+            }
+            String name = arg.substring(2);
+            String value = null;
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                value = name.substring(equals + 1);
+                name = name.substring(0, equals);
+            }
+            if (valued.contains(name)) {
+                if (value == null) {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Option --" + name + " needs a value");
+                    }
+                    value = args[++i];
+                }
+                options.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+    }
+
+    List<String> positional() {
+        return positional;
+    }
+
+    String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
@@ -0,0 +1,76 @@
+package com.testlang;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.testlang.ast.Program;
+import com.testlang.parser.Diagnostics;
+
+/**
+ * Outcome of one {@link TestLangCompiler} call
+ */
+public final class CompilationResult {
+    private final Program program;
+    private final String code;
+    private final List<Diagnostics.Diagnostic> diagnostics;
+    private final String error;
+    private final List<String> warnings;
+
+    CompilationResult(Program program, String code, List<Diagnostics.Diagnostic> diagnostics,
+                      String error, List<String> warnings) {
+        this.program = program;
+        this.code = code;
+        this.diagnostics = diagnostics;
+        this.error = error;
+        this.warnings = warnings;
+    }
+
+    static CompilationResult failed(Program program, Diagnostics diagnostics, String error) {
+        return new CompilationResult(program, null, diagnostics.getErrors(), error, Collections.emptyList());
+    }
+
+    /**
+     * Whether the input parsed and validated, and code was generated
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * The program with its imports merged in; null if the input did not parse
+     */
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * The generated JUnit 5 class; null unless the compilation succeeded
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Lexical and syntax errors of the input and of the files it imports
+     */
+    public List<Diagnostics.Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Why the compilation failed, as the command line reports it; null if it succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    @Override
+    public String toString() {
+        return "CompilationResult{success=" + isSuccess() + ", error=" + error +
+                ", diagnostics=" + diagnostics.size() + ", warnings=" + warnings.size() + '}';
+    }
+}
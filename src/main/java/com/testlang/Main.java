@@ -2,59 +2,180 @@ package com.testlang;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.StringReader;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import com.testlang.ast.Assertion;
+import com.testlang.ast.AstVisitor;
+import com.testlang.ast.ConfigItem;
 import com.testlang.ast.Program;
+import com.testlang.ast.Request;
+import com.testlang.ast.Statement;
+import com.testlang.ast.TestBlock;
 import com.testlang.codegen.CodeGenerator;
-import com.testlang.parser.Lexer;
-import com.testlang.parser.parser;
+import com.testlang.parser.Diagnostics;
+import com.testlang.parser.ModuleResolver;
+import com.testlang.runtime.DurationHistory;
+import com.testlang.runtime.Env;
+import com.testlang.runtime.JsonPath;
+import com.testlang.stub.StubServer;
 
 /**
  * Main entry point for the TestLang++ compiler
  */
 public class Main {
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Usage: java -jar testlang-java.jar <input.test> [output.java]");
+        CommandLine commandLine = null;
+        Shard shard = null;
+        try {
+            commandLine = new CommandLine(args, Set.of("lexer", "tests", "include-tags", "exclude-tags", "shard", "durations", "order", "fail-fast", "watch", "stub", "merge-durations"));
+            if (commandLine.option("shard", null) != null) {
+                shard = new Shard(commandLine.option("shard", null));
+            }
+            if (!commandLine.option("fail-fast", "0").matches("[0-9]{1,9}")) {
+                throw new IllegalArgumentException("--fail-fast must be a number of failures");
+            }
+            if (!commandLine.option("stub", "0").matches("[0-9]{1,5}") || Integer.parseInt(commandLine.option("stub", "0")) > 65535) {
+                throw new IllegalArgumentException("--stub must be a port number");
+            }
+        } catch (IllegalArgumentException e) {
+            commandLine = null;
+            System.err.println("Error: " + e.getMessage());
+        }
+        if (commandLine == null || (commandLine.positional().isEmpty() && commandLine.option("watch", null) == null)
+                || !Set.of("jflex", "fast").contains(commandLine.option("lexer", "jflex"))
+                || !Set.of("default", "history").contains(commandLine.option("order", "default"))) {
+            System.err.println("Usage: java -jar testlang-java.jar [options] <input.test> [output.java]");
+            System.err.println("       java -jar testlang-java.jar [options] --watch <dir>");
+            System.err.println("       java -jar testlang-java.jar --merge-durations <file> <copy>...");
             System.err.println("  <input.test>  : Path to the .test file to compile");
             System.err.println("  [output.java] : Optional output path (default: GeneratedTests.java)");
+            System.err.println("Options:");
+            System.err.println("  --lexer jflex|fast   : Lexer to use (default: jflex)");
+            System.err.println("  --tests <a,b>        : Generate only the tests with these names");
+            System.err.println("  --include-tags <a,b> : Generate only the tests with one of these tags");
+            System.err.println("  --exclude-tags <a,b> : Leave out the tests with any of these tags");
+            System.err.println("  --shard <i/n>        : Generate only slice i of n, balanced by the --durations history if given");
+            System.err.println("  --durations <file>   : Test duration history (default: " + DurationHistory.DEFAULT_FILE + ")");
+            System.err.println("  --merge-durations <file> : Merge shards' updated copies of a duration history back into it");
+            System.err.println("  --order history      : Run failed tests first, then by recorded duration");
+            System.err.println("  --fail-fast <n>      : Skip the remaining tests after n failures (default: 0, never)");
+            System.err.println("  --watch <dir>        : Run the tests under dir, and re-run them as .test files change");
+            System.err.println("  --stub <port>        : Serve responses that satisfy the assertions instead of generating code (0: any free port)");
             System.exit(1);
         }
 
-        String inputFile = args[0];
-        String outputFile = args.length > 1 ? args[1] : "GeneratedTests.java";
+        if (commandLine.option("merge-durations", null) != null) {
+            try {
+                List<Path> copies = new ArrayList<>();
+                for (String copy : commandLine.positional()) {
+                    copies.add(Paths.get(copy));
+                }
+                DurationHistory.merge(Paths.get(commandLine.option("merge-durations", null)), copies);
+                System.out.println("Merged " + copies.size() + " history file(s) into " + commandLine.option("merge-durations", null));
+            } catch (IOException e) {
+                System.err.println("Error: I/O error: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        TestFilter filter = new TestFilter(commandLine.option("tests", null),
+                commandLine.option("include-tags", null), commandLine.option("exclude-tags", null));
+        if (commandLine.option("watch", null) != null) {
+            try {
+                new WatchMode(Paths.get(commandLine.option("watch", null)), "fast".equals(commandLine.option("lexer", "jflex")),
+                        filter).run();
+            } catch (IOException e) {
+                System.err.println("Error: I/O error: " + e.getMessage());
+                System.exit(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        String inputFile = commandLine.positional().get(0);
+        String outputFile = commandLine.positional().size() > 1 ? commandLine.positional().get(1) : "GeneratedTests.java";
 
         try {
             System.out.println("TestLang++ Compiler");
             System.out.println("===================");
             System.out.println("Input:  " + inputFile);
-            System.out.println("Output: " + outputFile);
+            if (commandLine.option("stub", null) == null) {
+                System.out.println("Output: " + outputFile);
+            }
             System.out.println();
 
-            // Read input file
-            String input = new String(Files.readAllBytes(Paths.get(inputFile)));
-
-            // Create lexer and parser
-            Lexer lexer = new Lexer(new StringReader(input));
-            parser p = new parser(lexer);
-
-            // Parse the input
+            // Parse the input and the files it imports; errors in any of them are reported together
             System.out.println("Parsing...");
-            Program program = (Program) p.parse().value;
+            ModuleResolver resolver = new ModuleResolver("fast".equals(commandLine.option("lexer", "jflex")));
+            Diagnostics diagnostics = new Diagnostics(inputFile);
+            Program program;
+            try {
+                program = resolver.load(Paths.get(inputFile), diagnostics);
+            } catch (Exception e) {
+                if (!diagnostics.hasErrors()) {
+                    throw e;
+                }
+                for (Diagnostics.Diagnostic error : diagnostics.getErrors()) {
+                    System.err.println(error);
+                }
+                System.err.println("Error: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
             System.out.println("✓ Parse successful");
             System.out.println();
 
+            // Prune unselected tests before they are validated and generated
+            if (!filter.isEmpty()) {
+                for (String name : filter.unknownNames(program)) {
+                    System.out.println("Warning: No test named '" + name + "'");
+                }
+                int total = program.getTests().size();
+                program = filter.apply(program);
+                System.out.println("Selected " + program.getTests().size() + " of " + total + " test(s)");
+                if (program.getTests().isEmpty()) {
+                    throw new Exception("Validation error: No test matches --tests, --include-tags and --exclude-tags");
+                }
+                System.out.println();
+            }
+            String durations = commandLine.option("durations", DurationHistory.DEFAULT_FILE);
+            if (shard != null) {
+                // Only a history named explicitly is the same on every machine
+                program = shard(program, shard, commandLine.option("durations", ""));
+            }
+
             // Validate program
             validateProgram(program);
             System.out.println("✓ Validation successful");
             System.out.println();
 
+            if (commandLine.option("stub", null) != null) {
+                stub(program, Integer.parseInt(commandLine.option("stub", null)));
+                return;
+            }
+
             // Generate code
             System.out.println("Generating JUnit 5 code...");
             CodeGenerator generator = new CodeGenerator(program);
+            generator.setDurationHistory(durations);
+            generator.setOrderByHistory("history".equals(commandLine.option("order", "default")));
+            generator.setMaxFailures(Integer.parseInt(commandLine.option("fail-fast", "0")));
             String generatedCode = generator.generate();
+            for (String warning : generator.getWarnings()) {
+                System.out.println("Warning: " + warning);
+            }
 
             // Write output
             Files.write(Paths.get(outputFile), generatedCode.getBytes());
@@ -76,38 +197,176 @@ public class Main {
         }
     }
 
-    private static void validateProgram(Program program) throws Exception {
+    private static void stub(Program program, int port) throws IOException {
+        StubServer server = new StubServer(program);
+        for (String warning : server.getWarnings()) {
+            System.out.println("Warning: " + warning);
+        }
+        server.start(new InetSocketAddress("localhost", port));
+        String url = "http://localhost:" + server.getPort();
+        System.out.println("✓ Stub server for " + program.getTests().size() + " test(s), " +
+                server.getStubCount() + " request(s), listening on " + url);
+        System.out.println("Run the suite against it with -Dtestlang.base_url=" + url + " (Ctrl+C to stop)");
+    }
+
+    private static Program shard(Program program, Shard shard, String durationsFile) throws Exception {
+        DurationHistory history = durationsFile.isEmpty() ? null : DurationHistory.read(Paths.get(durationsFile));
+        Map<String, Long> durations = history == null ? Collections.emptyMap() : history.getDurations();
+        Program sharded = shard.apply(program, durations);
+        String split = history == null ? "split by name hash; pass --durations <file> to balance by a shared history"
+                : "split by name hash, no durations in " + durationsFile;
+        long total = 0;
+        long selected = 0;
+        for (TestBlock test : program.getTests()) {
+            total += durations.getOrDefault(test.getName(), 0L);
+        }
+        for (TestBlock test : sharded.getTests()) {
+            selected += durations.getOrDefault(test.getName(), 0L);
+        }
+        if (total > 0) {
+            split = String.format("%.1f s of %.1f s recorded, history %s", selected / 1000.0, total / 1000.0,
+                    history.fingerprint());
+        }
+        System.out.println("Shard " + shard.getIndex() + "/" + shard.getCount() + ": " + sharded.getTests().size() +
+                " of " + program.getTests().size() + " test(s), " + split);
+        System.out.println();
+        if (sharded.getTests().isEmpty()) {
+            throw new Exception("Validation error: Shard " + shard.getIndex() + "/" + shard.getCount() + " has no tests");
+        }
+        return sharded;
+    }
+
+    static void validateProgram(Program program) throws Exception {
         // Check that we have at least one test
         if (program.getTests().isEmpty()) {
             throw new Exception("Validation error: Program must contain at least one test block");
         }
 
+        validateSettings(program);
+        validateVariables(program);
+
         // Validate each test
         for (var test : program.getTests()) {
             validateTest(test);
         }
     }
 
-    private static void validateTest(com.testlang.ast.TestBlock test) throws Exception {
-        int requestCount = 0;
-        int assertionCount = 0;
+    /**
+     * Checks each setting, and that none is set twice: generated code and
+     * watch mode would not agree on which value wins
+     */
+    static void validateSettings(Program program) throws Exception {
+        if (program.getConfig() != null) {
+            Set<String> seen = new HashSet<>();
+            for (var item : program.getConfig().getItems()) {
+                if (item.getKind() == ConfigItem.Kind.SETTING) {
+                    validateSetting(item);
+                    if (!seen.add(item.getKey())) {
+                        throw new Exception("Validation error: Config setting '" + item.getKey() + "' is set twice");
+                    }
+                }
+            }
+        }
+    }
 
-        for (var stmt : test.getStatements()) {
-            if (stmt instanceof com.testlang.ast.Request) {
-                requestCount++;
-            } else if (stmt instanceof com.testlang.ast.Assertion) {
-                assertionCount++;
+    /**
+     * Checks that every variable can be overridden on its own at run time
+     */
+    static void validateVariables(Program program) throws Exception {
+        Map<String, String> byEnvName = new HashMap<>();
+        for (var variable : program.getVariables()) {
+            String name = variable.getName();
+            if (Env.RESERVED.contains(name)) {
+                throw new Exception("Validation error: Variable '" + name + "' has the name of the runtime setting " +
+                                    Env.PROPERTY_PREFIX + name);
+            }
+            String other = byEnvName.putIfAbsent(Env.envName(name), name);
+            if (other != null && !other.equals(name)) {
+                throw new Exception("Validation error: Variables '" + other + "' and '" + name +
+                                    "' would both be read from " + Env.envName(name));
             }
         }
+    }
 
-        if (requestCount == 0) {
+    private static void validateSetting(ConfigItem item) throws Exception {
+        switch (item.getKey()) {
+            case "max_body":
+                if (!item.getValue().matches("[0-9]+") || Long.parseLong(item.getValue()) <= 0) {
+                    throw new Exception("Validation error: max_body must be a positive number of bytes");
+                }
+                break;
+            case "pool_size":
+            case "prewarm":
+            case "connect_timeout":
+            case "request_timeout":
+            case "keep_alive":
+                if (!item.getValue().matches("[0-9]+") || Long.parseLong(item.getValue()) <= 0) {
+                    throw new Exception("Validation error: " + item.getKey() + " must be a positive number");
+                }
+                break;
+            case "http_version":
+                if (!"1.1".equals(item.getValue()) && !"2".equals(item.getValue())) {
+                    throw new Exception("Validation error: http_version must be \"1.1\" or \"2\"");
+                }
+                break;
+            default:
+                throw new Exception("Validation error: Unknown config setting '" + item.getKey() + "'");
+        }
+    }
+
+    static void validateTest(TestBlock test) throws Exception {
+        StatementCounter counter = new StatementCounter();
+        for (Statement stmt : test.getStatements()) {
+            stmt.accept(counter);
+        }
+        if (counter.error != null) {
+            throw new Exception("Validation error: Test '" + test.getName() + "': " + counter.error);
+        }
+
+        if (counter.requests == 0) {
             throw new Exception("Validation error: Test '" + test.getName() + 
                               "' must contain at least one request");
         }
 
-        if (assertionCount < 2) {
+        if (counter.assertions < 2) {
             throw new Exception("Validation error: Test '" + test.getName() + 
-                              "' must contain at least 2 assertions (found " + assertionCount + ")");
+                              "' must contain at least 2 assertions (found " + counter.assertions + ")");
+        }
+    }
+
+    /**
+     * Counts the requests and assertions of a test and keeps the first
+     * invalid assertion's error
+     */
+    private static class StatementCounter implements AstVisitor<Void> {
+        int requests;
+        int assertions;
+        String error;
+
+        @Override
+        public Void visitRequest(Request request) {
+            requests++;
+            return null;
+        }
+
+        @Override
+        public Void visitAssertion(Assertion assertion) {
+            assertions++;
+            switch (assertion.getKind()) {
+                case JSON_EQUALS:
+                case JSON_CONTAINS:
+                    try {
+                        JsonPath.parse(assertion.getPath());
+                    } catch (IllegalArgumentException e) {
+                        if (error == null) {
+                            error = e.getMessage();
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return null;
         }
     }
 }
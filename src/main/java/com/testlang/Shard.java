@@ -0,0 +1,116 @@
+package com.testlang;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.testlang.ast.Program;
+import com.testlang.ast.TestBlock;
+
+/**
+ * One of n disjoint slices of a suite, so that n machines can each run one.
+ *
+ * With a duration history, tests are assigned longest first, each to the
+ * slice with the least total time so far, so the slices finish at about
+ * the same time. A test missing from the history counts as the average of
+ * those in it. Without a history, a test goes to the slice given by a hash
+ * of its name. The split depends only on the test names and the history,
+ * so every machine computes the same slices from the same history file;
+ * that is why the compiler only passes a history named by
+ * {@code --durations}, never one each machine recorded for itself.
+ */
+class Shard {
+    private final int index;
+    private final int count;
+
+    /**
+     * @param spec {@code i/n}, with i from 1 to n
+     * @throws IllegalArgumentException if spec is not of that form
+     */
+    Shard(String spec) {
+        String[] parts = spec.split("/");
+        try {
+            if (parts.length != 2) {
+                throw new NumberFormatException();
+            }
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard must be i/n, for example 2/4: " + spec);
+        }
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Shard must be i/n with 1 <= i <= n: " + spec);
+        }
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * The program with only the tests of this shard
+     *
+     * @param durations milliseconds by test name, from the duration history
+     */
+    Program apply(Program program, Map<String, Long> durations) {
+        List<TestBlock> tests = program.getTests();
+        int[] shards = assign(tests, durations);
+        List<TestBlock> selected = new ArrayList<>();
+        for (int i = 0; i < tests.size(); i++) {
+            if (shards[i] == index - 1) {
+                selected.add(tests.get(i));
+            }
+        }
+        return new Program(program.getImports(), program.getConfig(), program.getVariables(), selected);
+    }
+
+    /**
+     * The 0-based shard of each test
+     */
+    int[] assign(List<TestBlock> tests, Map<String, Long> durations) {
+        int[] shards = new int[tests.size()];
+        long known = 0;
+        int knownCount = 0;
+        for (TestBlock test : tests) {
+            Long duration = durations.get(test.getName());
+            if (duration != null) {
+                known += duration;
+                knownCount++;
+            }
+        }
+        if (knownCount == 0) {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = Math.floorMod(tests.get(i).getName().hashCode(), count);
+            }
+            return shards;
+        }
+
+        // Every test costs at least 1 ms, so that tests too fast to measure still spread out
+        long average = known / knownCount;
+        long[] estimates = new long[tests.size()];
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < estimates.length; i++) {
+            estimates[i] = Math.max(1, durations.getOrDefault(tests.get(i).getName(), average));
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingLong(i -> -estimates[i]).thenComparing(i -> tests.get(i).getName()));
+
+        long[] loads = new long[count];
+        for (int i : order) {
+            int least = 0;
+            for (int s = 1; s < count; s++) {
+                if (loads[s] < loads[least]) {
+                    least = s;
+                }
+            }
+            shards[i] = least;
+            loads[least] += estimates[i];
+        }
+        return shards;
+    }
+}
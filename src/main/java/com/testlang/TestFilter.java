@@ -0,0 +1,89 @@
+package com.testlang;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.testlang.ast.Program;
+import com.testlang.ast.TestBlock;
+
+/**
+ * Selects tests by name and tag before code generation, so that the tests
+ * left out are never generated, compiled or loaded.
+ *
+ * A test is selected if its name is listed (or no names are), it has one
+ * of the included tags (or none are included), and it has none of the
+ * excluded tags.
+ */
+class TestFilter {
+    private final Set<String> names;
+    private final Set<String> includeTags;
+    private final Set<String> excludeTags;
+
+    /**
+     * @param names       comma-separated test names, or null for all tests
+     * @param includeTags comma-separated tags, or null
+     * @param excludeTags comma-separated tags, or null
+     */
+    TestFilter(String names, String includeTags, String excludeTags) {
+        this.names = split(names);
+        this.includeTags = split(includeTags);
+        this.excludeTags = split(excludeTags);
+    }
+
+    boolean isEmpty() {
+        return names.isEmpty() && includeTags.isEmpty() && excludeTags.isEmpty();
+    }
+
+    boolean matches(TestBlock test) {
+        if (!names.isEmpty() && !names.contains(test.getName())) {
+            return false;
+        }
+        List<String> tags = test.getTags();
+        if (!includeTags.isEmpty() && Collections.disjoint(includeTags, tags)) {
+            return false;
+        }
+        return excludeTags.isEmpty() || Collections.disjoint(excludeTags, tags);
+    }
+
+    /**
+     * The program with only the selected tests
+     */
+    Program apply(Program program) {
+        if (isEmpty()) {
+            return program;
+        }
+        List<TestBlock> selected = new ArrayList<>();
+        for (TestBlock test : program.getTests()) {
+            if (matches(test)) {
+                selected.add(test);
+            }
+        }
+        return new Program(program.getImports(), program.getConfig(), program.getVariables(), selected);
+    }
+
+    /**
+     * Listed names that no test in the program has
+     */
+    List<String> unknownNames(Program program) {
+        Set<String> unknown = new LinkedHashSet<>(names);
+        for (TestBlock test : program.getTests()) {
+            unknown.remove(test.getName());
+        }
+        return new ArrayList<>(unknown);
+    }
+
+    private static Set<String> split(String list) {
+        Set<String> values = new LinkedHashSet<>();
+        if (list != null) {
+            for (String value : list.split(",")) {
+                if (!value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+}
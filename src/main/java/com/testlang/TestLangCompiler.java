@@ -0,0 +1,89 @@
+package com.testlang;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+
+import com.testlang.ast.Program;
+import com.testlang.codegen.CodeGenerator;
+import com.testlang.parser.Diagnostics;
+import com.testlang.parser.ModuleResolver;
+import com.testlang.parser.ParserPool;
+
+/**
+ * The compiler as a library: parses, validates and generates the JUnit 5
+ * class for one suite per call, and returns the outcome instead of
+ * printing it and exiting.
+ *
+ * A compiler is safe to share between threads. Lexers and parsers come
+ * from a {@link ParserPool}, and files compiled by path are cached by the
+ * compiler's {@link ModuleResolver}, so suites that import the same file
+ * parse it once.
+ */
+public class TestLangCompiler {
+    private final ParserPool parsers;
+    private final ModuleResolver resolver;
+
+    public TestLangCompiler() {
+        this(false);
+    }
+
+    /**
+     * @param fastLexer parse with the hand-written lexer instead of the JFlex lexer
+     */
+    public TestLangCompiler(boolean fastLexer) {
+        this.parsers = new ParserPool(fastLexer);
+        this.resolver = new ModuleResolver(parsers);
+    }
+
+    /**
+     * Compiles a file, resolving its imports against its directory
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public CompilationResult compile(Path file) throws IOException {
+        Diagnostics diagnostics = new Diagnostics(file.toString());
+        Program program;
+        try {
+            program = resolver.load(file, diagnostics);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            return CompilationResult.failed(null, diagnostics, e.getMessage());
+        }
+        return generate(program, diagnostics);
+    }
+
+    /**
+     * Compiles a suite that has no imports
+     *
+     * @throws IOException if reading the input fails
+     */
+    public CompilationResult compile(Reader input) throws IOException {
+        Diagnostics diagnostics = new Diagnostics(null);
+        Program program;
+        try {
+            program = parsers.parse(input, diagnostics);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            return CompilationResult.failed(null, diagnostics, e.getMessage());
+        }
+        if (!program.getImports().isEmpty()) {
+            return CompilationResult.failed(program, diagnostics,
+                    "Import error: Cannot resolve imports without a file; compile the suite by path");
+        }
+        return generate(program, diagnostics);
+    }
+
+    private static CompilationResult generate(Program program, Diagnostics diagnostics) {
+        try {
+            Main.validateProgram(program);
+        } catch (Exception e) {
+            return CompilationResult.failed(program, diagnostics, e.getMessage());
+        }
+        CodeGenerator generator = new CodeGenerator(program);
+        String code = generator.generate();
+        return new CompilationResult(program, code, diagnostics.getErrors(), null, generator.getWarnings());
+    }
+}
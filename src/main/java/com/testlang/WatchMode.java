@@ -0,0 +1,249 @@
+package com.testlang;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.testlang.ast.Program;
+import com.testlang.ast.TestBlock;
+import com.testlang.interpreter.Interpreter;
+import com.testlang.interpreter.TestResult;
+import com.testlang.parser.Diagnostics;
+import com.testlang.parser.ModuleResolver;
+
+/**
+ * {@code --watch <dir>}: runs the tests of every .test file under a
+ * directory, then re-runs the affected tests whenever a file changes.
+ *
+ * Files are loaded through one {@link ModuleResolver}, so a change
+ * re-parses only the changed files and reuses the cached ASTs of the
+ * others. A changed file re-runs the tests whose text changed, or all its
+ * tests if its config or variables changed, and a changed imported file
+ * re-runs the files that import it. Tests run in this JVM through the
+ * {@link Interpreter}, whose HTTP clients last the whole session.
+ */
+class WatchMode {
+    // Editors write a file in several steps; wait for them to settle
+    private static final long SETTLE_MILLIS = 25;
+
+    private final Path directory;
+    private final ModuleResolver resolver;
+    private final TestFilter filter;
+    private final Interpreter interpreter;
+    private final Map<Path, Suite> suites = new TreeMap<>();
+    // Files that did not load; retried on every change, since the fix may be in another file
+    private final Set<Path> broken = new TreeSet<>();
+    // Results since the last summary
+    private int passed;
+    private int failed;
+
+    WatchMode(Path directory, boolean fastLexer, TestFilter filter) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.resolver = new ModuleResolver(fastLexer);
+        this.filter = filter;
+        this.interpreter = new Interpreter();
+    }
+
+    void run() throws IOException, InterruptedException {
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            register(watcher, directory);
+            long start = System.nanoTime();
+            for (Path file : testFiles(directory)) {
+                update(file);
+            }
+            summary(start, "to run everything");
+            System.out.println("Watching " + directory + " for changes to .test files (Ctrl+C to stop)");
+            System.out.println();
+
+            while (true) {
+                WatchKey key = watcher.take();
+                start = System.nanoTime();
+                Set<Path> changed = new TreeSet<>();
+                do {
+                    Path parent = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            changed.addAll(testFiles(directory));
+                            changed.addAll(suites.keySet());
+                            continue;
+                        }
+                        Path path = parent.resolve((Path) event.context()).toAbsolutePath().normalize();
+                        if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                            register(watcher, path);
+                            changed.addAll(testFiles(path));
+                        } else if (path.toString().endsWith(".test")) {
+                            changed.add(path);
+                        }
+                    }
+                    key.reset();
+                    key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (!changed.isEmpty()) {
+                    handle(changed);
+                    summary(start, "after the change");
+                }
+            }
+        }
+    }
+
+    private void handle(Set<Path> changed) {
+        Set<Path> canonical = new HashSet<>();
+        for (Path path : changed) {
+            canonical.add(canonical(path));
+        }
+        Set<Path> affected = new TreeSet<>(changed);
+        affected.addAll(broken);
+        for (Map.Entry<Path, Suite> entry : suites.entrySet()) {
+            for (Path file : entry.getValue().files) {
+                if (canonical.contains(file)) {
+                    affected.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        for (Path file : affected) {
+            if (Files.exists(file)) {
+                update(file);
+            } else if (suites.remove(file) != null || broken.remove(file)) {
+                System.out.println(directory.relativize(file) + ": removed");
+            }
+        }
+    }
+
+    /**
+     * Loads a file and runs those of its tests that are new, changed, or
+     * failed in the previous run
+     */
+    private void update(Path file) {
+        String name = directory.relativize(file).toString();
+        Diagnostics diagnostics = new Diagnostics(name);
+        Set<Path> files = new HashSet<>();
+        Program program;
+        try {
+            program = resolver.load(file, diagnostics, files);
+            Main.validateSettings(program);
+            Main.validateVariables(program);
+        } catch (Exception e) {
+            for (Diagnostics.Diagnostic error : diagnostics.getErrors()) {
+                System.out.println(error);
+            }
+            System.out.println(name + ": " + e.getMessage());
+            broken.add(file);
+            return;
+        }
+        broken.remove(file);
+
+        Suite previous = suites.get(file);
+        Suite suite = new Suite(program, files);
+        suites.put(file, suite);
+        boolean all = previous == null || !previous.settings.equals(suite.settings);
+        List<TestBlock> selected = new ArrayList<>();
+        for (TestBlock test : program.getTests()) {
+            if (!filter.matches(test)) {
+                continue;
+            }
+            if (all || previous.failing.contains(test.getName())
+                    || !suite.tests.get(test.getName()).equals(previous.tests.get(test.getName()))) {
+                try {
+                    Main.validateTest(test);
+                    selected.add(test);
+                } catch (Exception e) {
+                    System.out.println(name + ": " + e.getMessage());
+                    suite.failing.add(test.getName());
+                    failed++;
+                }
+            }
+        }
+        if (selected.isEmpty()) {
+            return;
+        }
+
+        System.out.println(name + ": running " + selected.size() + " test(s)");
+        for (TestResult result : interpreter.run(program, selected)) {
+            long millis = result.getNanos() / 1_000_000;
+            if (result.isPassed()) {
+                passed++;
+                System.out.println("  ✓ " + result.getName() + " (" + millis + " ms)");
+            } else {
+                failed++;
+                suite.failing.add(result.getName());
+                System.out.println("  ✗ " + result.getName() + " (" + millis + " ms): " + result.getMessage());
+            }
+        }
+    }
+
+    private void summary(long start, String when) {
+        if (passed + failed > 0) {
+            System.out.println(passed + " passed, " + failed + " failed, " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms " + when);
+            System.out.println();
+        }
+        passed = 0;
+        failed = 0;
+    }
+
+    private static void register(WatchService watcher, Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path dir : paths.filter(Files::isDirectory).collect(Collectors.toList())) {
+                dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        }
+    }
+
+    private static List<Path> testFiles(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(path -> path.toString().endsWith(".test") && Files.isRegularFile(path))
+                    .map(path -> path.toAbsolutePath().normalize())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path canonical(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            // Deleted; still matches suites that imported it
+            return path;
+        }
+    }
+
+    /**
+     * A loaded file: the files it was loaded from, what its tests were run
+     * against, the text of each test and the tests that failed
+     */
+    private static final class Suite {
+        final Set<Path> files;
+        final String settings;
+        final Map<String, String> tests = new HashMap<>();
+        final Set<String> failing = new HashSet<>();
+
+        Suite(Program program, Set<Path> files) {
+            this.files = files;
+            this.settings = program.getConfig() + " " + program.getVariables();
+            for (TestBlock test : program.getTests()) {
+                tests.put(test.getName(), test.toString());
+            }
+        }
+    }
+}
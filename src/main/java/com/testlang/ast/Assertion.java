@@ -3,57 +3,183 @@ package com.testlang.ast;
 /**
  * Represents an assertion
  */
-public class Assertion extends Statement {
-    private String type; // status_equals, header_equals, header_contains, body_contains, status_range
-    private Object value1;
-    private Object value2;
-    private Object value3;
+public final class Assertion extends Statement {
+    public enum Kind {
+        STATUS_EQUALS("status_equals"),
+        STATUS_RANGE("status_range"),
+        HEADER_EQUALS("header_equals"),
+        HEADER_CONTAINS("header_contains"),
+        BODY_CONTAINS("body_contains"),
+        JSON_EQUALS("json_equals"),
+        JSON_CONTAINS("json_contains");
 
-    // For status_equals
-    public Assertion(String type, int statusCode) {
-        this.type = type;
-        this.value1 = statusCode;
+        private final String type;
+
+        Kind(String type) {
+            this.type = type;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Whether the assertion reads the response body
+         */
+        public boolean readsBody() {
+            return this == BODY_CONTAINS || this == JSON_EQUALS || this == JSON_CONTAINS;
+        }
+    }
+
+    private final Kind kind;
+    private final int status;    // status_equals, or the start of status_range
+    private final int rangeEnd;  // status_range
+    private final String target; // header name or JSON path
+    private final String text;   // expected text of header, body and json_contains assertions
+    private final Value expected; // json_equals
+
+    private Assertion(Kind kind, int status, int rangeEnd, String target, String text, Value expected) {
+        this.kind = kind;
+        this.status = status;
+        this.rangeEnd = rangeEnd;
+        this.target = target;
+        this.text = text;
+        this.expected = expected;
+    }
+
+    public static Assertion statusEquals(int status) {
+        return new Assertion(Kind.STATUS_EQUALS, status, 0, null, null, null);
+    }
+
+    public static Assertion statusRange(int start, int end) {
+        return new Assertion(Kind.STATUS_RANGE, start, end, null, null, null);
+    }
+
+    public static Assertion headerEquals(String name, String value) {
+        return new Assertion(Kind.HEADER_EQUALS, 0, 0, name, value, null);
+    }
+
+    public static Assertion headerContains(String name, String substring) {
+        return new Assertion(Kind.HEADER_CONTAINS, 0, 0, name, substring, null);
+    }
+
+    public static Assertion bodyContains(String substring) {
+        return new Assertion(Kind.BODY_CONTAINS, 0, 0, null, substring, null);
+    }
+
+    public static Assertion jsonEquals(String path, Value expected) {
+        return new Assertion(Kind.JSON_EQUALS, 0, 0, path, null, expected);
+    }
+
+    public static Assertion jsonContains(String path, String substring) {
+        return new Assertion(Kind.JSON_CONTAINS, 0, 0, path, substring, null);
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitAssertion(this);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Expected status of status_equals, first status of status_range
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Last status of status_range
+     */
+    public int getRangeEnd() {
+        return rangeEnd;
+    }
+
+    /**
+     * Header name of header assertions
+     */
+    public String getHeaderName() {
+        return target;
     }
 
-    // For header_equals, header_contains
-    public Assertion(String type, String key, String value) {
-        this.type = type;
-        this.value1 = key;
-        this.value2 = value;
+    /**
+     * JSON path of json assertions
+     */
+    public String getPath() {
+        return target;
     }
 
-    // For body_contains
-    public Assertion(String type, String value) {
-        this.type = type;
-        this.value1 = value;
+    /**
+     * Expected value of header_equals, substring of the contains assertions
+     */
+    public String getText() {
+        return text;
     }
 
-    // For status_range
-    public Assertion(String type, int start, int end) {
-        this.type = type;
-        this.value1 = start;
-        this.value2 = end;
+    /**
+     * Expected value of json_equals
+     */
+    public Value getExpected() {
+        return expected;
     }
 
+    /**
+     * @deprecated use {@link #getKind()}
+     */
+    @Deprecated
     public String getType() {
-        return type;
+        return kind.getType();
     }
 
+    /**
+     * @deprecated use the typed getters
+     */
+    @Deprecated
     public Object getValue1() {
-        return value1;
+        switch (kind) {
+            case STATUS_EQUALS:
+            case STATUS_RANGE:
+                return status;
+            case BODY_CONTAINS:
+                return text;
+            default:
+                return target;
+        }
     }
 
+    /**
+     * @deprecated use the typed getters
+     */
+    @Deprecated
     public Object getValue2() {
-        return value2;
+        switch (kind) {
+            case STATUS_RANGE:
+                return rangeEnd;
+            case HEADER_EQUALS:
+            case HEADER_CONTAINS:
+            case JSON_CONTAINS:
+                return text;
+            case JSON_EQUALS:
+                return expected.asObject();
+            default:
+                return null;
+        }
     }
 
+    /**
+     * @deprecated no assertion has a third value
+     */
+    @Deprecated
     public Object getValue3() {
-        return value3;
+        return null;
     }
 
     @Override
     public String toString() {
-        return "Assertion{type='" + type + "', value1=" + value1 + 
-               ", value2=" + value2 + ", value3=" + value3 + '}';
+        return "Assertion{type='" + kind.getType() + "', value1=" + getValue1() +
+               ", value2=" + getValue2() + '}';
     }
 }
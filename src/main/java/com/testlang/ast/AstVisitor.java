@@ -0,0 +1,16 @@
+package com.testlang.ast;
+
+/**
+ * Visitor over the statements of a test block.
+ *
+ * Passes dispatch on the node through {@link Statement#accept(AstVisitor)}
+ * and within a node on its kind enum, instead of instanceof checks and
+ * String comparisons.
+ *
+ * @param <R> result of visiting one statement
+ */
+public interface AstVisitor<R> {
+    R visitRequest(Request request);
+
+    R visitAssertion(Assertion assertion);
+}
@@ -0,0 +1,382 @@
+package com.testlang.ast;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A whole program in a handful of flat arrays.
+ *
+ * Every string (names, paths, header names, values) is stored once in a
+ * symbol table and referenced by index. Statements, request items, config
+ * items and variables are fixed-width records of primitive ints. A program
+ * with 100k tests is then a few int arrays and its distinct strings instead
+ * of millions of node objects, lists and boxed integers.
+ *
+ * {@link #asProgram()} returns the usual AST as a lazy view: nodes are
+ * created when they are read and can be collected right after use.
+ */
+public final class CompactProgram {
+    // Statement record: op, a, b, c
+    private static final int STATEMENT = 4;
+    // Ops below ASSERTION are Request.Method ordinals
+    private static final int ASSERTION = Request.Method.values().length;
+    private static final int ITEM = 3;     // kind, key, value
+    private static final int TEST = 5;     // name, first statement, statement count, first tag, tag count
+    private static final int VARIABLE = 3; // name, value kind, payload
+    private static final int NONE = -1;
+
+    private static final Request.Method[] METHODS = Request.Method.values();
+    private static final Assertion.Kind[] ASSERTIONS = Assertion.Kind.values();
+    private static final Value.Kind[] VALUES = Value.Kind.values();
+    private static final ConfigItem.Kind[] CONFIG_ITEMS = ConfigItem.Kind.values();
+
+    private final String[] symbols;
+    private final int[] imports;
+    private final boolean hasConfig;
+    private final int[] config;
+    private final int[] variables;
+    private final int[] tests;
+    private final int[] tags;
+    private final int[] statements;
+    private final int[] items;
+
+    private CompactProgram(Builder builder) {
+        this.symbols = builder.symbols.toArray(new String[0]);
+        this.imports = builder.imports.toArray();
+        this.hasConfig = builder.hasConfig;
+        this.config = builder.config.toArray();
+        this.variables = builder.variables.toArray();
+        this.tests = builder.tests.toArray();
+        this.tags = builder.tags.toArray();
+        this.statements = builder.statements.toArray();
+        this.items = builder.items.toArray();
+    }
+
+    public int getTestCount() {
+        return tests.length / TEST;
+    }
+
+    public int getStatementCount() {
+        return statements.length / STATEMENT;
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    public String getTestName(int test) {
+        return symbols[tests[test * TEST]];
+    }
+
+    /**
+     * The program as AST nodes, created on access
+     */
+    public Program asProgram() {
+        ConfigBlock configBlock = null;
+        if (hasConfig) {
+            configBlock = new ConfigBlock(new View<>(config.length / ITEM, this::configItem));
+        }
+        return new Program(new View<>(imports.length, i -> symbols[imports[i]]), configBlock, new View<>(variables.length / VARIABLE, this::variable),
+                new View<>(getTestCount(), this::test));
+    }
+
+    private ConfigItem configItem(int i) {
+        int at = i * ITEM;
+        String value = symbols[config[at + 2]];
+        switch (CONFIG_ITEMS[config[at]]) {
+            case BASE_URL:
+                return ConfigItem.baseUrl(value);
+            case HEADER:
+                return ConfigItem.header(symbols[config[at + 1]], value);
+            default:
+                return ConfigItem.setting(symbols[config[at + 1]], value);
+        }
+    }
+
+    private Variable variable(int i) {
+        int at = i * VARIABLE;
+        return new Variable(symbols[variables[at]], value(variables[at + 1], variables[at + 2]));
+    }
+
+    private TestBlock test(int i) {
+        int at = i * TEST;
+        int first = tests[at + 1];
+        int firstTag = tests[at + 3];
+        return new TestBlock(symbols[tests[at]], new View<>(tests[at + 4], t -> symbols[tags[firstTag + t]]),
+                new View<>(tests[at + 2], s -> statement(first + s)));
+    }
+
+    private Statement statement(int i) {
+        int at = i * STATEMENT;
+        int op = statements[at];
+        int a = statements[at + 1];
+        int b = statements[at + 2];
+        int c = statements[at + 3];
+        if (op < ASSERTION) {
+            return new Request(METHODS[op], symbols[a], new View<>(c, item -> requestItem(b + item)));
+        }
+        switch (ASSERTIONS[op - ASSERTION]) {
+            case STATUS_EQUALS:
+                return Assertion.statusEquals(a);
+            case STATUS_RANGE:
+                return Assertion.statusRange(a, b);
+            case HEADER_EQUALS:
+                return Assertion.headerEquals(symbols[a], symbols[b]);
+            case HEADER_CONTAINS:
+                return Assertion.headerContains(symbols[a], symbols[b]);
+            case BODY_CONTAINS:
+                return Assertion.bodyContains(symbols[a]);
+            case JSON_EQUALS:
+                return Assertion.jsonEquals(symbols[a], value(b, c));
+            default:
+                return Assertion.jsonContains(symbols[a], symbols[b]);
+        }
+    }
+
+    private RequestItem requestItem(int i) {
+        int at = i * ITEM;
+        if (items[at] == RequestItem.Kind.BODY.ordinal()) {
+            return RequestItem.body(symbols[items[at + 2]]);
+        }
+        return RequestItem.header(symbols[items[at + 1]], symbols[items[at + 2]]);
+    }
+
+    private Value value(int kind, int payload) {
+        switch (VALUES[kind]) {
+            case STRING:
+                return new Value(symbols[payload]);
+            case NUMBER:
+                return new Value(payload);
+            default:
+                return new Value(payload != 0);
+        }
+    }
+
+    private interface Element<T> {
+        T get(int index);
+    }
+
+    private static final class View<T> extends AbstractList<T> {
+        private final int size;
+        private final Element<T> element;
+
+        View(int size, Element<T> element) {
+            this.size = size;
+            this.element = element;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            }
+            return element.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Appends a program in source order, the order in which the parser
+     * reduces it: request items before their request, tags and statements
+     * before their test.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> symbols = new ArrayList<>();
+        private final Ints imports = new Ints();
+        private boolean hasConfig;
+        private final Ints config = new Ints();
+        private final Ints variables = new Ints();
+        private final Ints tests = new Ints();
+        private final Ints tags = new Ints();
+        private final Ints statements = new Ints();
+        private final Ints items = new Ints();
+        private int firstItem;      // first request item of the request being parsed
+        private int firstStatement; // first statement of the test being parsed
+        private int firstTag;       // first tag of the test being parsed
+
+        public Builder importPath(String path) {
+            imports.add(symbol(path));
+            return this;
+        }
+
+        public Builder config() {
+            hasConfig = true;
+            return this;
+        }
+
+        public Builder baseUrl(String url) {
+            config.add(ConfigItem.Kind.BASE_URL.ordinal(), NONE, symbol(url));
+            return this;
+        }
+
+        public Builder configHeader(String name, String value) {
+            config.add(ConfigItem.Kind.HEADER.ordinal(), symbol(name), symbol(value));
+            return this;
+        }
+
+        public Builder setting(String name, Value value) {
+            config.add(ConfigItem.Kind.SETTING.ordinal(), symbol(name), symbol(value.asText()));
+            return this;
+        }
+
+        public Builder variable(String name, Value value) {
+            variables.add(symbol(name), value.getKind().ordinal(), payload(value));
+            return this;
+        }
+
+        public Builder header(String name, String value) {
+            items.add(RequestItem.Kind.HEADER.ordinal(), symbol(name), symbol(value));
+            return this;
+        }
+
+        public Builder body(String content) {
+            items.add(RequestItem.Kind.BODY.ordinal(), NONE, symbol(content));
+            return this;
+        }
+
+        /**
+         * A request with the headers and body added since the previous request
+         */
+        public Builder request(Request.Method method, String path) {
+            int end = items.size() / ITEM;
+            statements.add(method.ordinal(), symbol(path), firstItem, end - firstItem);
+            firstItem = end;
+            return this;
+        }
+
+        public Builder statusEquals(int status) {
+            return assertion(Assertion.Kind.STATUS_EQUALS, status, 0, 0);
+        }
+
+        public Builder statusRange(int start, int end) {
+            return assertion(Assertion.Kind.STATUS_RANGE, start, end, 0);
+        }
+
+        public Builder headerEquals(String name, String value) {
+            return assertion(Assertion.Kind.HEADER_EQUALS, symbol(name), symbol(value), 0);
+        }
+
+        public Builder headerContains(String name, String substring) {
+            return assertion(Assertion.Kind.HEADER_CONTAINS, symbol(name), symbol(substring), 0);
+        }
+
+        public Builder bodyContains(String substring) {
+            return assertion(Assertion.Kind.BODY_CONTAINS, symbol(substring), 0, 0);
+        }
+
+        public Builder jsonEquals(String path, Value expected) {
+            return assertion(Assertion.Kind.JSON_EQUALS, symbol(path), expected.getKind().ordinal(), payload(expected));
+        }
+
+        public Builder jsonContains(String path, String substring) {
+            return assertion(Assertion.Kind.JSON_CONTAINS, symbol(path), symbol(substring), 0);
+        }
+
+        public Builder tag(String tag) {
+            tags.add(symbol(tag));
+            return this;
+        }
+
+        /**
+         * A test with the tags and statements added since the previous test
+         */
+        public Builder test(String name) {
+            int end = statements.size() / STATEMENT;
+            int endTag = tags.size();
+            tests.add(symbol(name), firstStatement, end - firstStatement, firstTag, endTag - firstTag);
+            firstStatement = end;
+            firstTag = endTag;
+            return this;
+        }
+
+        public CompactProgram build() {
+            return new CompactProgram(this);
+        }
+
+        private Builder assertion(Assertion.Kind kind, int a, int b, int c) {
+            statements.add(ASSERTION + kind.ordinal(), a, b, c);
+            return this;
+        }
+
+        private int payload(Value value) {
+            switch (value.getKind()) {
+                case STRING:
+                    return symbol(value.getStringValue());
+                case NUMBER:
+                    return value.intValue();
+                default:
+                    return value.booleanValue() ? 1 : 0;
+            }
+        }
+
+        private int symbol(String text) {
+            Integer id = ids.get(text);
+            if (id == null) {
+                id = symbols.size();
+                ids.put(text, id);
+                symbols.add(text);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Growable int array
+     */
+    private static final class Ints {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int a) {
+            ensure(1);
+            values[size++] = a;
+        }
+
+        void add(int a, int b, int c) {
+            ensure(3);
+            values[size++] = a;
+            values[size++] = b;
+            values[size++] = c;
+        }
+
+        void add(int a, int b, int c, int d) {
+            ensure(4);
+            values[size++] = a;
+            values[size++] = b;
+            values[size++] = c;
+            values[size++] = d;
+        }
+
+        void add(int a, int b, int c, int d, int e) {
+            ensure(5);
+            values[size++] = a;
+            values[size++] = b;
+            values[size++] = c;
+            values[size++] = d;
+            values[size++] = e;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        private void ensure(int n) {
+            if (size + n > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + n));
+            }
+        }
+    }
+}
@@ -1,15 +1,16 @@
 package com.testlang.ast;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents the config block with base_url and default headers
  */
-public class ConfigBlock {
-    private List<ConfigItem> items;
+public final class ConfigBlock {
+    private final List<ConfigItem> items;
 
     public ConfigBlock(List<ConfigItem> items) {
-        this.items = items;
+        this.items = Collections.unmodifiableList(items);
     }
 
     public List<ConfigItem> getItems() {
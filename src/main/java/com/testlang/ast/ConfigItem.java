@@ -1,28 +1,57 @@
 package com.testlang.ast;
 
 /**
- * Represents a single config item (base_url or header)
+ * Represents a single config item (base_url, header or a named setting)
  */
-public class ConfigItem {
-    private String type; // "base_url" or "header"
-    private String key;
-    private String value;
-
-    // For base_url
-    public ConfigItem(String type, String value) {
-        this.type = type;
-        this.value = value;
+public final class ConfigItem {
+    public enum Kind {
+        BASE_URL("base_url"),
+        HEADER("header"),
+        SETTING("setting");
+
+        private final String type;
+
+        Kind(String type) {
+            this.type = type;
+        }
+
+        public String getType() {
+            return type;
+        }
     }
 
-    // For header
-    public ConfigItem(String type, String key, String value) {
-        this.type = type;
+    private final Kind kind;
+    private final String key;
+    private final String value;
+
+    private ConfigItem(Kind kind, String key, String value) {
+        this.kind = kind;
         this.key = key;
         this.value = value;
     }
 
+    public static ConfigItem baseUrl(String url) {
+        return new ConfigItem(Kind.BASE_URL, null, url);
+    }
+
+    public static ConfigItem header(String name, String value) {
+        return new ConfigItem(Kind.HEADER, name, value);
+    }
+
+    public static ConfigItem setting(String name, String value) {
+        return new ConfigItem(Kind.SETTING, name, value);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @deprecated use {@link #getKind()}
+     */
+    @Deprecated
     public String getType() {
-        return type;
+        return kind.getType();
     }
 
     public String getKey() {
@@ -35,10 +64,10 @@ public class ConfigItem {
 
     @Override
     public String toString() {
-        if ("base_url".equals(type)) {
-            return "ConfigItem{type='" + type + "', value='" + value + "'}";
+        if (kind == Kind.BASE_URL) {
+            return "ConfigItem{type='" + kind.getType() + "', value='" + value + "'}";
         } else {
-            return "ConfigItem{type='" + type + "', key='" + key + "', value='" + value + "'}";
+            return "ConfigItem{type='" + kind.getType() + "', key='" + key + "', value='" + value + "'}";
         }
     }
 }
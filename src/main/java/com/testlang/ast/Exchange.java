@@ -0,0 +1,84 @@
+package com.testlang.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A request and the assertions that follow it, up to the next request.
+ * The code generator and the interpreter both run a test as its exchanges.
+ */
+public final class Exchange {
+    private final Request request;
+    private final List<Assertion> assertions;
+
+    public Exchange(Request request, List<Assertion> assertions) {
+        this.request = request;
+        this.assertions = Collections.unmodifiableList(assertions);
+    }
+
+    /**
+     * The exchanges of a test, in order
+     *
+     * @throws IllegalArgumentException if an assertion comes before the first request
+     */
+    public static List<Exchange> of(TestBlock test) {
+        Grouper grouper = new Grouper(test);
+        for (Statement statement : test.getStatements()) {
+            statement.accept(grouper);
+        }
+        grouper.flush();
+        return grouper.exchanges;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    public List<Assertion> getAssertions() {
+        return assertions;
+    }
+
+    @Override
+    public String toString() {
+        return "Exchange{request=" + request + ", assertions=" + assertions + '}';
+    }
+
+    /**
+     * Collects each request with the assertions that follow it, and closes
+     * the exchange when the next request starts
+     */
+    private static final class Grouper implements AstVisitor<Void> {
+        private final TestBlock test;
+        private final List<Exchange> exchanges = new ArrayList<>();
+        private Request request;
+        private List<Assertion> assertions = new ArrayList<>();
+
+        Grouper(TestBlock test) {
+            this.test = test;
+        }
+
+        @Override
+        public Void visitRequest(Request next) {
+            flush();
+            request = next;
+            assertions = new ArrayList<>();
+            return null;
+        }
+
+        @Override
+        public Void visitAssertion(Assertion assertion) {
+            if (request == null) {
+                throw new IllegalArgumentException("Assertion before request in test " + test.getName());
+            }
+            assertions.add(assertion);
+            return null;
+        }
+
+        void flush() {
+            if (request != null) {
+                exchanges.add(new Exchange(request, assertions));
+            }
+        }
+    }
+}
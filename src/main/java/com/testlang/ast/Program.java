@@ -1,19 +1,33 @@
 package com.testlang.ast;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Root node representing the entire test program
  */
-public class Program {
-    private ConfigBlock config;
-    private List<Variable> variables;
-    private List<TestBlock> tests;
+public final class Program {
+    private final List<String> imports;
+    private final ConfigBlock config;
+    private final List<Variable> variables;
+    private final List<TestBlock> tests;
 
     public Program(ConfigBlock config, List<Variable> variables, List<TestBlock> tests) {
+        this(Collections.emptyList(), config, variables, tests);
+    }
+
+    public Program(List<String> imports, ConfigBlock config, List<Variable> variables, List<TestBlock> tests) {
+        this.imports = Collections.unmodifiableList(imports);
         this.config = config;
-        this.variables = variables;
-        this.tests = tests;
+        this.variables = Collections.unmodifiableList(variables);
+        this.tests = Collections.unmodifiableList(tests);
+    }
+
+    /**
+     * Paths of the imported files, as written in the source
+     */
+    public List<String> getImports() {
+        return imports;
     }
 
     public ConfigBlock getConfig() {
@@ -31,7 +45,8 @@ public class Program {
     @Override
     public String toString() {
         return "Program{" +
-                "config=" + config +
+                "imports=" + imports +
+                ", config=" + config +
                 ", variables=" + variables +
                 ", tests=" + tests +
                 '}';
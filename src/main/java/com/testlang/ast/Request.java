@@ -1,25 +1,46 @@
 package com.testlang.ast;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents an HTTP request
  */
-public class Request extends Statement {
-    private String method; // GET, POST, PUT, DELETE
-    private String path;
-    private List<RequestItem> items;
+public final class Request extends Statement {
+    public enum Method {
+        GET,
+        POST,
+        PUT,
+        DELETE
+    }
+
+    private final Method method;
+    private final String path;
+    private final List<RequestItem> items;
 
-    public Request(String method, String path, List<RequestItem> items) {
+    public Request(Method method, String path, List<RequestItem> items) {
         this.method = method;
         this.path = path;
-        this.items = items;
+        this.items = Collections.unmodifiableList(items);
     }
 
-    public String getMethod() {
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitRequest(this);
+    }
+
+    public Method getHttpMethod() {
         return method;
     }
 
+    /**
+     * @deprecated use {@link #getHttpMethod()}
+     */
+    @Deprecated
+    public String getMethod() {
+        return method.name();
+    }
+
     public String getPath() {
         return path;
     }
@@ -28,6 +49,18 @@ public class Request extends Statement {
         return items;
     }
 
+    /**
+     * The body item, or null when the request has no body
+     */
+    public RequestItem getBody() {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getKind() == RequestItem.Kind.BODY) {
+                return items.get(i);
+            }
+        }
+        return null;
+    }
+
     @Override
     public String toString() {
         return "Request{method='" + method + "', path='" + path + "', items=" + items + '}';
@@ -3,26 +3,40 @@ package com.testlang.ast;
 /**
  * Represents a request item (header or body)
  */
-public class RequestItem {
-    private String type; // "header" or "body"
-    private String key;   // For headers
-    private String value;
-
-    // For body
-    public RequestItem(String type, String value) {
-        this.type = type;
-        this.value = value;
+public final class RequestItem {
+    public enum Kind {
+        HEADER,
+        BODY
     }
 
-    // For header
-    public RequestItem(String type, String key, String value) {
-        this.type = type;
+    private final Kind kind;
+    private final String key;   // For headers
+    private final String value;
+
+    private RequestItem(Kind kind, String key, String value) {
+        this.kind = kind;
         this.key = key;
         this.value = value;
     }
 
+    public static RequestItem header(String name, String value) {
+        return new RequestItem(Kind.HEADER, name, value);
+    }
+
+    public static RequestItem body(String content) {
+        return new RequestItem(Kind.BODY, null, content);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @deprecated use {@link #getKind()}
+     */
+    @Deprecated
     public String getType() {
-        return type;
+        return kind == Kind.HEADER ? "header" : "body";
     }
 
     public String getKey() {
@@ -35,10 +49,10 @@ public class RequestItem {
 
     @Override
     public String toString() {
-        if ("body".equals(type)) {
-            return "RequestItem{type='" + type + "', value='" + value + "'}";
+        if (kind == Kind.BODY) {
+            return "RequestItem{type='body', value='" + value + "'}";
         } else {
-            return "RequestItem{type='" + type + "', key='" + key + "', value='" + value + "'}";
+            return "RequestItem{type='header', key='" + key + "', value='" + value + "'}";
         }
     }
 }
@@ -4,5 +4,8 @@ package com.testlang.ast;
  * Base class for statements (requests and assertions)
  */
 public abstract class Statement {
-    // Marker interface for type safety
+    Statement() {
+    }
+
+    public abstract <R> R accept(AstVisitor<R> visitor);
 }
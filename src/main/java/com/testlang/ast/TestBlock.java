@@ -1,29 +1,40 @@
 package com.testlang.ast;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents a test block
  */
-public class TestBlock {
-    private String name;
-    private List<Statement> statements;
+public final class TestBlock {
+    private final String name;
+    private final List<String> tags;
+    private final List<Statement> statements;
 
     public TestBlock(String name, List<Statement> statements) {
+        this(name, Collections.emptyList(), statements);
+    }
+
+    public TestBlock(String name, List<String> tags, List<Statement> statements) {
         this.name = name;
-        this.statements = statements;
+        this.tags = Collections.unmodifiableList(tags);
+        this.statements = Collections.unmodifiableList(statements);
     }
 
     public String getName() {
         return name;
     }
 
+    public List<String> getTags() {
+        return tags;
+    }
+
     public List<Statement> getStatements() {
         return statements;
     }
 
     @Override
     public String toString() {
-        return "TestBlock{name='" + name + "', statements=" + statements + '}';
+        return "TestBlock{name='" + name + "', tags=" + tags + ", statements=" + statements + '}';
     }
 }
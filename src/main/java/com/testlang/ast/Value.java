@@ -1,41 +1,105 @@
 package com.testlang.ast;
 
 /**
- * Represents a value (string or integer)
+ * Represents a literal value (string, integer or boolean)
  */
-public class Value {
-    private String stringValue;
-    private Integer intValue;
-    private boolean isString;
+public final class Value {
+    public enum Kind {
+        STRING,
+        NUMBER,
+        BOOLEAN
+    }
+
+    private final Kind kind;
+    private final String stringValue;
+    private final int intValue;
+    private final boolean booleanValue;
 
     public Value(String value) {
+        this.kind = Kind.STRING;
         this.stringValue = value;
-        this.isString = true;
+        this.intValue = 0;
+        this.booleanValue = false;
     }
 
-    public Value(Integer value) {
+    public Value(int value) {
+        this.kind = Kind.NUMBER;
+        this.stringValue = null;
         this.intValue = value;
-        this.isString = false;
+        this.booleanValue = false;
+    }
+
+    public Value(boolean value) {
+        this.kind = Kind.BOOLEAN;
+        this.stringValue = null;
+        this.intValue = 0;
+        this.booleanValue = value;
+    }
+
+    public Kind getKind() {
+        return kind;
     }
 
     public boolean isString() {
-        return isString;
+        return kind == Kind.STRING;
     }
 
     public String getStringValue() {
         return stringValue;
     }
 
+    /**
+     * The integer value, or null when this is not a number
+     */
     public Integer getIntValue() {
+        return kind == Kind.NUMBER ? intValue : null;
+    }
+
+    public int intValue() {
         return intValue;
     }
 
+    public boolean booleanValue() {
+        return booleanValue;
+    }
+
+    /**
+     * The value as it would be written in a string: {@code admin}, {@code 42}, {@code true}
+     */
+    public String asText() {
+        switch (kind) {
+            case STRING:
+                return stringValue;
+            case NUMBER:
+                return Integer.toString(intValue);
+            default:
+                return Boolean.toString(booleanValue);
+        }
+    }
+
+    /**
+     * The boxed value (String, Integer or Boolean)
+     */
+    public Object asObject() {
+        switch (kind) {
+            case STRING:
+                return stringValue;
+            case NUMBER:
+                return intValue;
+            default:
+                return booleanValue;
+        }
+    }
+
     @Override
     public String toString() {
-        if (isString) {
-            return "Value{string='" + stringValue + "'}";
-        } else {
-            return "Value{int=" + intValue + '}';
+        switch (kind) {
+            case STRING:
+                return "Value{string='" + stringValue + "'}";
+            case NUMBER:
+                return "Value{int=" + intValue + '}';
+            default:
+                return "Value{boolean=" + booleanValue + '}';
         }
     }
 }
@@ -3,9 +3,9 @@ package com.testlang.ast;
 /**
  * Represents a variable declaration
  */
-public class Variable {
-    private String name;
-    private Value value;
+public final class Variable {
+    private final String name;
+    private final Value value;
 
     public Variable(String name, Value value) {
         this.name = name;
@@ -1,16 +1,22 @@
 package com.testlang.codegen;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.testlang.ast.Assertion;
 import com.testlang.ast.ConfigItem;
+import com.testlang.ast.Exchange;
 import com.testlang.ast.Program;
 import com.testlang.ast.Request;
 import com.testlang.ast.RequestItem;
-import com.testlang.ast.Statement;
 import com.testlang.ast.TestBlock;
+import com.testlang.ast.Value;
 import com.testlang.ast.Variable;
+import com.testlang.runtime.DurationHistory;
 
 /**
  * Generates JUnit 5 test code from the AST
@@ -18,24 +24,54 @@ import com.testlang.ast.Variable;
 public class CodeGenerator {
     private Program program;
     private Map<String, String> variables;
+    private Map<String, Template> templates;
+    private List<String> warnings;
+    private String currentTest;
+    private int requestIndex;
+    private List<String> requestConstants;
     private StringBuilder code;
     private int indentLevel;
+    private String durationHistory = DurationHistory.DEFAULT_FILE;
+    private boolean orderByHistory;
+    private int maxFailures;
 
     public CodeGenerator(Program program) {
         this.program = program;
         this.variables = new HashMap<>();
+        this.templates = new HashMap<>();
+        this.warnings = new ArrayList<>();
+        this.requestConstants = new ArrayList<>();
         this.code = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    /**
+     * File the generated tests record their durations in by default;
+     * empty to not record them
+     */
+    public void setDurationHistory(String file) {
+        this.durationHistory = file;
+    }
+
+    /**
+     * Run previously failed tests first, then by recorded duration
+     */
+    public void setOrderByHistory(boolean orderByHistory) {
+        this.orderByHistory = orderByHistory;
+    }
+
+    /**
+     * Number of failures after which the generated tests skip the rest
+     * by default; 0 to run them all
+     */
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
     public String generate() {
         // Process variables
         for (Variable var : program.getVariables()) {
-            if (var.getValue().isString()) {
-                variables.put(var.getName(), var.getValue().getStringValue());
-            } else {
-                variables.put(var.getName(), String.valueOf(var.getValue().getIntValue()));
-            }
+            variables.put(var.getName(), var.getValue().asText());
         }
 
         // Generate class header
@@ -48,6 +84,7 @@ public class CodeGenerator {
         for (TestBlock test : program.getTests()) {
             generateTestMethod(test);
         }
+        generateRequestConstants();
 
         // Close class
         writeLine("}");
@@ -57,16 +94,21 @@ public class CodeGenerator {
 
     private void generateImports() {
         writeLine("import org.junit.jupiter.api.*;");
+        writeLine("import org.junit.jupiter.api.extension.RegisterExtension;");
         writeLine("import static org.junit.jupiter.api.Assertions.*;");
         writeLine("import java.net.http.*;");
         writeLine("import java.net.*;");
         writeLine("import java.time.Duration;");
         writeLine("import java.nio.charset.StandardCharsets;");
         writeLine("import java.util.*;");
+        writeLine("import com.testlang.runtime.*;");
         writeLine();
     }
 
     private void generateClassHeader() {
+        if (orderByHistory) {
+            writeLine("@TestMethodOrder(HistoryOrderer.class)");
+        }
         writeLine("public class GeneratedTests {");
         indentLevel++;
     }
@@ -76,16 +118,72 @@ public class CodeGenerator {
         String baseUrl = "http://localhost:8080";
         if (program.getConfig() != null) {
             for (ConfigItem item : program.getConfig().getItems()) {
-                if ("base_url".equals(item.getType())) {
+                if (item.getKind() == ConfigItem.Kind.BASE_URL) {
                     baseUrl = item.getValue();
                     break;
                 }
             }
         }
-        writeLine("static String BASE = \"" + baseUrl + "\";");
+        writeLine("static String BASE = Env.get(\"base_url\", \"" + escapeJava(baseUrl) + "\");");
+        if (getSetting("max_body") != null) {
+            writeLine("static long MAX_BODY = " + getSetting("max_body") + "L;");
+        }
+        writeLine("static Duration CONNECT_TIMEOUT = " + duration("connect_timeout", "Duration.ofSeconds(5)") + ";");
+        writeLine("static Duration REQUEST_TIMEOUT = " + duration("request_timeout", "Duration.ofSeconds(10)") + ";");
         writeLine("static Map<String, String> DEFAULT_HEADERS = new HashMap<>();");
-        writeLine("static HttpClient client;");
+        writeLine("static InstrumentedHttpClient client;");
+        writeLine();
+
+        // Test durations and outcomes balance later --shard runs and order later runs
+        writeLine("@RegisterExtension");
+        writeLine("static final DurationRecorder DURATIONS = new DurationRecorder(Env.get(\"durations\", \"" +
+                escapeJava(durationHistory) + "\"));");
+        writeLine("@RegisterExtension");
+        writeLine("static final FailFast FAIL_FAST = new FailFast(Integer.parseInt(Env.get(\"fail_fast\", \"" +
+                maxFailures + "\")));");
         writeLine();
+
+        // Variables are bound when the class initializes, with the let values as defaults
+        if (!program.getVariables().isEmpty()) {
+            for (Variable var : program.getVariables()) {
+                writeLine("static final String " + variableField(var.getName()) + " = Env.get(\"" + var.getName() + "\", \"" +
+                         escapeJava(variables.get(var.getName())) + "\");");
+            }
+            writeLine();
+        }
+
+        // Pool settings are read when the JDK client initializes, so set them first
+        if (getSetting("pool_size") != null || getSetting("keep_alive") != null) {
+            writeLine("static {");
+            indentLevel++;
+            if (getSetting("pool_size") != null) {
+                writeLine("System.setProperty(\"jdk.httpclient.connectionPoolSize\", \"" + getSetting("pool_size") + "\");");
+            }
+            if (getSetting("keep_alive") != null) {
+                // The JDK property is in whole seconds
+                long seconds = (Long.parseLong(getSetting("keep_alive")) + 999) / 1000;
+                writeLine("System.setProperty(\"jdk.httpclient.keepalive.timeout\", \"" + seconds + "\");");
+            }
+            indentLevel--;
+            writeLine("}");
+            writeLine();
+        }
+    }
+
+    private String duration(String setting, String defaultValue) {
+        String millis = getSetting(setting);
+        return millis != null ? "Duration.ofMillis(" + millis + ")" : defaultValue;
+    }
+
+    private String getSetting(String name) {
+        if (program.getConfig() != null) {
+            for (ConfigItem item : program.getConfig().getItems()) {
+                if (item.getKind() == ConfigItem.Kind.SETTING && name.equals(item.getKey())) {
+                    return item.getValue();
+                }
+            }
+        }
+        return null;
     }
 
     private void generateSetupMethod() {
@@ -93,42 +191,67 @@ public class CodeGenerator {
         writeLine("static void setup() {");
         indentLevel++;
         
-        writeLine("client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();");
-        
+        String version = "";
+        if ("2".equals(getSetting("http_version"))) {
+            version = ".version(HttpClient.Version.HTTP_2)";
+        } else if ("1.1".equals(getSetting("http_version"))) {
+            version = ".version(HttpClient.Version.HTTP_1_1)";
+        }
+        writeLine("client = new InstrumentedHttpClient(HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT)" + version + ".build());");
+
         // Add default headers from config
         if (program.getConfig() != null) {
             for (ConfigItem item : program.getConfig().getItems()) {
-                if ("header".equals(item.getType())) {
-                    writeLine("DEFAULT_HEADERS.put(\"" + item.getKey() + "\", \"" + item.getValue() + "\");");
+                if (item.getKind() == ConfigItem.Kind.HEADER) {
+                    writeLine("DEFAULT_HEADERS.put(\"" + item.getKey() + "\", " +
+                             expression(item.getValue(), "header " + item.getKey() + " of config") + ");");
                 }
             }
         }
-        
+
+        // Open connections and resolve DNS before the first test
+        if (getSetting("prewarm") != null) {
+            writeLine("client.prewarm(URI.create(BASE), " + getSetting("prewarm") + ", REQUEST_TIMEOUT);");
+        }
+
+        indentLevel--;
+        writeLine("}");
+        writeLine();
+
+        writeLine("@AfterAll");
+        writeLine("static void summary() {");
+        indentLevel++;
+        writeLine("System.out.println(client.summary());");
         indentLevel--;
         writeLine("}");
         writeLine();
     }
 
     private void generateTestMethod(TestBlock test) {
+        currentTest = "test " + test.getName();
+        requestIndex = 0;
         writeLine("@Test");
+        for (String tag : test.getTags()) {
+            writeLine("@Tag(\"" + tag + "\")");
+        }
         writeLine("void test_" + test.getName() + "() throws Exception {");
         indentLevel++;
 
-        // Process statements
-        boolean hasRequest = false;
-        for (Statement stmt : test.getStatements()) {
-            if (stmt instanceof Request) {
-                if (hasRequest) {
-                    // Close previous request's response handling
+        // Each request with the assertions that follow it; with more than one,
+        // each gets its own block so their locals do not clash
+        List<Exchange> exchanges = Exchange.of(test);
+        if (exchanges.size() == 1) {
+            generateExchange(exchanges.get(0).getRequest(), exchanges.get(0).getAssertions());
+        } else {
+            for (int i = 0; i < exchanges.size(); i++) {
+                if (i > 0) {
                     writeLine();
                 }
-                generateRequest((Request) stmt);
-                hasRequest = true;
-            } else if (stmt instanceof Assertion) {
-                if (!hasRequest) {
-                    throw new RuntimeException("Assertion before request in test " + test.getName());
-                }
-                generateAssertion((Assertion) stmt);
+                writeLine("{");
+                indentLevel++;
+                generateExchange(exchanges.get(i).getRequest(), exchanges.get(i).getAssertions());
+                indentLevel--;
+                writeLine("}");
             }
         }
 
@@ -137,112 +260,226 @@ public class CodeGenerator {
         writeLine();
     }
 
-    private void generateRequest(Request request) {
-        String path = substituteVariables(request.getPath());
-        String url;
-        
-        // Determine if we need to prepend base URL
-        if (path.startsWith("http://") || path.startsWith("https://")) {
-            url = path;
-        } else {
-            url = "BASE + \"" + path + "\"";
+    private void generateExchange(Request request, List<Assertion> assertions) {
+        generateRequest(request, assertions);
+        for (Assertion assertion : assertions) {
+            generateAssertion(assertion);
         }
+    }
 
-        // Build request
-        writeLine("HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(" + url + "))");
-        indentLevel++;
-        writeLine(".timeout(Duration.ofSeconds(10))");
+    private void generateRequest(Request request, List<Assertion> assertions) {
+        // The URI and body are resolved once, when the class initializes
+        String suffix = currentTest.substring("test ".length()) + "_" + (++requestIndex);
+        String uriField = "URI_" + suffix;
+        requestConstants.add("static final URI " + uriField + " = URI.create(" + url(request.getPath()) + ");");
 
-        // Determine request body
-        String bodyContent = null;
-        for (RequestItem item : request.getItems()) {
-            if ("body".equals(item.getType())) {
-                bodyContent = substituteVariables(item.getValue());
-                break;
-            }
+        String bodyField = null;
+        RequestItem body = request.getBody();
+        if (body != null) {
+            bodyField = "BODY_" + suffix;
+            requestConstants.add("static final byte[] " + bodyField + " = (" +
+                    expression(body.getValue(), "body of " + currentTest) + ").getBytes(StandardCharsets.UTF_8);");
         }
 
+        // Build request
+        writeLine("HttpRequest.Builder b = HttpRequest.newBuilder(" + uriField + ")");
+        indentLevel++;
+        writeLine(".timeout(REQUEST_TIMEOUT)");
+
         // Set HTTP method
-        switch (request.getMethod()) {
-            case "GET":
+        String publisher = bodyField != null
+                ? "HttpRequest.BodyPublishers.ofByteArray(" + bodyField + ")"
+                : "HttpRequest.BodyPublishers.noBody()";
+        switch (request.getHttpMethod()) {
+            case GET:
                 writeLine(".GET();");
                 break;
-            case "DELETE":
+            case DELETE:
                 writeLine(".DELETE();");
                 break;
-            case "POST":
-                if (bodyContent != null) {
-                    writeLine(".POST(HttpRequest.BodyPublishers.ofString(\"" + escapeJava(bodyContent) + "\"));");
-                } else {
-                    writeLine(".POST(HttpRequest.BodyPublishers.noBody());");
-                }
+            case POST:
+                writeLine(".POST(" + publisher + ");");
                 break;
-            case "PUT":
-                if (bodyContent != null) {
-                    writeLine(".PUT(HttpRequest.BodyPublishers.ofString(\"" + escapeJava(bodyContent) + "\"));");
-                } else {
-                    writeLine(".PUT(HttpRequest.BodyPublishers.noBody());");
-                }
+            case PUT:
+                writeLine(".PUT(" + publisher + ");");
                 break;
         }
         indentLevel--;
 
         // Add request-specific headers
         for (RequestItem item : request.getItems()) {
-            if ("header".equals(item.getType())) {
-                writeLine("b.header(\"" + item.getKey() + "\", \"" + item.getValue() + "\");");
+            if (item.getKind() == RequestItem.Kind.HEADER) {
+                writeLine("b.header(\"" + item.getKey() + "\", " +
+                         expression(item.getValue(), "header " + item.getKey() + " of " + currentTest) + ");");
             }
         }
 
         // Add default headers
         writeLine("for (var e : DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());");
 
-        // Send request
-        writeLine("HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));");
+        // Body assertions are evaluated in a single pass while the body streams in
+        Set<String> jsonPaths = new LinkedHashSet<>();
+        Set<String> bodyPatterns = new LinkedHashSet<>();
+        for (Assertion assertion : assertions) {
+            switch (assertion.getKind()) {
+                case JSON_EQUALS:
+                case JSON_CONTAINS:
+                    jsonPaths.add(assertion.getPath());
+                    break;
+                case BODY_CONTAINS:
+                    bodyPatterns.add(assertion.getText());
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!bodyPatterns.isEmpty()) {
+            writeLine("MultiPatternMatcher body = new MultiPatternMatcher(" + stringArguments(bodyPatterns) + ");");
+        }
+        if (!jsonPaths.isEmpty()) {
+            writeLine("JsonPathMatcher json = new JsonPathMatcher(" + stringArguments(jsonPaths) + ");");
+        }
+
+        // Send request; the body is only read as far as the assertions need it
+        if (bodyPatterns.isEmpty() && jsonPaths.isEmpty()) {
+            writeLine("HttpResponse<Void> resp = client.send(b.build(), HttpResponse.BodyHandlers.discarding());");
+        } else {
+            String check;
+            if (bodyPatterns.isEmpty()) {
+                check = "json";
+            } else if (jsonPaths.isEmpty()) {
+                check = "body";
+            } else {
+                check = "BodyChecks.all(body, json)";
+            }
+            String limit = getSetting("max_body") != null ? ", MAX_BODY" : "";
+            writeLine("HttpResponse<Void> resp = client.send(b.build(), CheckingBodySubscriber.handler(" + check + limit + "));");
+        }
         writeLine();
     }
 
+    private String url(String path) {
+        Template template = templates.computeIfAbsent(path, Template::compile);
+        String expression = expression(path, "path of " + currentTest);
+        if (path.startsWith("http://") || path.startsWith("https://")) {
+            return expression;
+        }
+        if (template.size() > 0 && template.literal(0).isEmpty() && variables.containsKey(template.name(0))) {
+            // Only known at run time whether the path is absolute
+            return "Env.resolve(BASE, " + expression + ")";
+        }
+        return "BASE + " + expression;
+    }
+
+    private void generateRequestConstants() {
+        if (requestConstants.isEmpty()) {
+            return;
+        }
+        writeLine("// Requests resolved once, when the class initializes");
+        for (String constant : requestConstants) {
+            writeLine(constant);
+        }
+    }
+
+    private String stringArguments(Set<String> values) {
+        StringBuilder args = new StringBuilder();
+        for (String value : values) {
+            if (args.length() > 0) {
+                args.append(", ");
+            }
+            args.append("\"").append(escapeJava(value)).append("\"");
+        }
+        return args.toString();
+    }
+
     private void generateAssertion(Assertion assertion) {
-        switch (assertion.getType()) {
-            case "status_equals":
-                int statusCode = (Integer) assertion.getValue1();
-                writeLine("assertEquals(" + statusCode + ", resp.statusCode());");
+        switch (assertion.getKind()) {
+            case STATUS_EQUALS:
+                writeLine("assertEquals(" + assertion.getStatus() + ", resp.statusCode());");
+                break;
+
+            case HEADER_EQUALS:
+                writeLine("assertEquals(\"" + escapeJava(assertion.getText()) + "\", " +
+                         "resp.headers().firstValue(\"" + assertion.getHeaderName() + "\").orElse(\"\"));");
                 break;
 
-            case "header_equals":
-                String headerKey = (String) assertion.getValue1();
-                String headerValue = (String) assertion.getValue2();
-                writeLine("assertEquals(\"" + escapeJava(headerValue) + "\", " +
-                         "resp.headers().firstValue(\"" + headerKey + "\").orElse(\"\"));");
+            case HEADER_CONTAINS:
+                writeLine("assertTrue(resp.headers().firstValue(\"" + assertion.getHeaderName() + "\").orElse(\"\").contains(\"" +
+                         escapeJava(assertion.getText()) + "\"));");
                 break;
 
-            case "header_contains":
-                headerKey = (String) assertion.getValue1();
-                String headerSubstr = (String) assertion.getValue2();
-                writeLine("assertTrue(resp.headers().firstValue(\"" + headerKey + "\").orElse(\"\").contains(\"" + 
-                         escapeJava(headerSubstr) + "\"));");
+            case BODY_CONTAINS:
+                String bodySubstr = escapeJava(assertion.getText());
+                writeLine("assertTrue(body.found(\"" + bodySubstr + "\"), body.describe(\"" + bodySubstr + "\"));");
                 break;
 
-            case "body_contains":
-                String bodySubstr = (String) assertion.getValue1();
-                writeLine("assertTrue(resp.body().contains(\"" + escapeJava(bodySubstr) + "\"));");
+            case JSON_EQUALS:
+                String path = escapeJava(assertion.getPath());
+                Value value = assertion.getExpected();
+                String expected = value.isString()
+                        ? "\"" + escapeJava(value.getStringValue()) + "\""
+                        : value.asText();
+                writeLine("assertTrue(json.hasValue(\"" + path + "\", " + expected + "), json.describe(\"" + path + "\"));");
                 break;
 
-            case "status_range":
-                int start = (Integer) assertion.getValue1();
-                int end = (Integer) assertion.getValue2();
+            case JSON_CONTAINS:
+                path = escapeJava(assertion.getPath());
+                writeLine("assertTrue(json.valueContains(\"" + path + "\", \"" + escapeJava(assertion.getText()) +
+                         "\"), json.describe(\"" + path + "\"));");
+                break;
+
+            case STATUS_RANGE:
+                int start = assertion.getStatus();
+                int end = assertion.getRangeEnd();
                 writeLine("assertTrue(resp.statusCode() >= " + start + " && resp.statusCode() <= " + end + ", " +
                          "\"Status code should be in range [" + start + ".." + end + "]\");");
                 break;
         }
     }
 
-    private String substituteVariables(String text) {
-        String result = text;
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            result = result.replace("$" + entry.getKey(), entry.getValue());
+    /**
+     * Warnings collected by the last call to {@link #generate()}
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * A Java expression for {@code text} that concatenates its literal
+     * parts with the fields its variables are bound to. Package-private
+     * for the benchmarks module.
+     */
+    String expression(String text, String context) {
+        // Each distinct string is tokenized only once
+        return expression(templates.computeIfAbsent(text, Template::compile), context);
+    }
+
+    String expression(Template template, String context) {
+        StringBuilder expression = new StringBuilder();
+        StringBuilder literal = new StringBuilder(template.literal(0));
+        for (int i = 0; i < template.size(); i++) {
+            String name = template.name(i);
+            if (variables.containsKey(name)) {
+                if (literal.length() > 0) {
+                    expression.append('"').append(escapeJava(literal.toString())).append("\" + ");
+                    literal.setLength(0);
+                }
+                expression.append(variableField(name)).append(" + ");
+            } else {
+                // Unknown variables are sent as written
+                warnings.add("Unknown variable '$" + name + "' at offset " + template.offset(i) + " in " + context + ": \"" + template.getSource() + "\"");
+                literal.append('$').append(name);
+            }
+            literal.append(template.literal(i + 1));
         }
-        return result;
+        if (literal.length() > 0 || expression.length() == 0) {
+            return expression.append('"').append(escapeJava(literal.toString())).append('"').toString();
+        }
+        return expression.substring(0, expression.length() - " + ".length());
+    }
+
+    private String variableField(String name) {
+        return "VAR_" + name;
     }
 
     private String escapeJava(String text) {
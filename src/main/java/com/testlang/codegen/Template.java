@@ -0,0 +1,119 @@
+package com.testlang.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A string with $variable references, tokenized once into literal and
+ * variable segments.
+ *
+ * A reference is a '$' followed by the longest identifier that follows it,
+ * so {@code $idx} never matches a variable named {@code id}. A '$' that is
+ * not followed by an identifier is literal text.
+ */
+public final class Template {
+    private final String source;
+    private final String[] literals; // literals[i] precedes names[i]; the last one ends the string
+    private final String[] names;
+    private final int[] offsets;     // position of each '$' in the source
+
+    private Template(String source, String[] literals, String[] names, int[] offsets) {
+        this.source = source;
+        this.literals = literals;
+        this.names = names;
+        this.offsets = offsets;
+    }
+
+    public static Template compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        int literalStart = 0;
+        int i = text.indexOf('$');
+        while (i >= 0 && i < text.length() - 1) {
+            int end = i + 1;
+            if (isIdentifierStart(text.charAt(end))) {
+                end++;
+                while (end < text.length() && isIdentifierPart(text.charAt(end))) {
+                    end++;
+                }
+                literals.add(text.substring(literalStart, i));
+                names.add(text.substring(i + 1, end));
+                offsets.add(i);
+                literalStart = end;
+            }
+            i = text.indexOf('$', end);
+        }
+        literals.add(text.substring(literalStart));
+
+        int[] offsetArray = new int[offsets.size()];
+        for (int k = 0; k < offsetArray.length; k++) {
+            offsetArray[k] = offsets.get(k);
+        }
+        return new Template(text, literals.toArray(new String[0]), names.toArray(new String[0]), offsetArray);
+    }
+
+    public boolean isConstant() {
+        return names.length == 0;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Number of variable references
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * The literal text before reference {@code i}, or after the last
+     * reference when {@code i == size()}
+     */
+    public String literal(int i) {
+        return literals[i];
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Renders the template in one pass. Unknown variables are kept as
+     * written and reported with the offset of their '$'.
+     */
+    public String render(Map<String, String> symbols, ObjIntConsumer<String> unknownVariable) {
+        if (names.length == 0) {
+            return source;
+        }
+        StringBuilder out = new StringBuilder(source.length() + 16 * names.length);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String value = symbols.get(names[i]);
+            if (value == null) {
+                unknownVariable.accept(names[i], offsets[i]);
+                out.append('$').append(names[i]);
+            } else {
+                out.append(value);
+            }
+        }
+        out.append(literals[names.length]);
+        return out.toString();
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+}
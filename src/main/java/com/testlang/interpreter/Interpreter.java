@@ -0,0 +1,296 @@
+package com.testlang.interpreter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.testlang.ast.Assertion;
+import com.testlang.ast.ConfigItem;
+import com.testlang.ast.Exchange;
+import com.testlang.ast.Program;
+import com.testlang.ast.Request;
+import com.testlang.ast.RequestItem;
+import com.testlang.ast.TestBlock;
+import com.testlang.ast.Value;
+import com.testlang.ast.Variable;
+import com.testlang.codegen.Template;
+import com.testlang.runtime.BodyCheck;
+import com.testlang.runtime.BodyChecks;
+import com.testlang.runtime.CheckingBodySubscriber;
+import com.testlang.runtime.Env;
+import com.testlang.runtime.InstrumentedHttpClient;
+import com.testlang.runtime.JsonPathMatcher;
+import com.testlang.runtime.MultiPatternMatcher;
+
+/**
+ * Runs tests straight from the AST, without generating and compiling a
+ * JUnit class.
+ *
+ * Requests and assertions behave as in the generated class: variables and
+ * base_url are bound through {@link Env}, body assertions are checked
+ * while the body streams in, and a test stops at its first failed
+ * assertion. The client is built from the config's {@code connect_timeout}
+ * and {@code http_version} and pre-warmed per {@code prewarm}, as the
+ * generated class builds its own. Clients are kept for the interpreter's
+ * lifetime, one per distinct pair of settings, so their connections stay
+ * open from one run to the next. {@code pool_size} and {@code keep_alive}
+ * are not applied: the JDK reads them once per JVM, before the first
+ * client. An interpreter is used by one thread at a time.
+ */
+public class Interpreter {
+    private final Map<String, Template> templates = new HashMap<>();
+    private final Map<String, InstrumentedHttpClient> clients = new HashMap<>();
+    // Client and base URL pairs that were pre-warmed
+    private final Set<String> prewarmed = new HashSet<>();
+
+    /**
+     * Runs the given tests of a program, one after the other
+     */
+    public List<TestResult> run(Program program, List<TestBlock> tests) {
+        Suite suite = new Suite(program);
+        List<TestResult> results = new ArrayList<>();
+        for (TestBlock test : tests) {
+            results.add(run(suite, test));
+        }
+        return results;
+    }
+
+    private TestResult run(Suite suite, TestBlock test) {
+        long start = System.nanoTime();
+        String failure;
+        try {
+            failure = execute(suite, test);
+        } catch (IOException | RuntimeException e) {
+            failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "Interrupted";
+        }
+        return new TestResult(test.getName(), failure == null, System.nanoTime() - start, failure);
+    }
+
+    /**
+     * @return the first failure, or null if every assertion held
+     */
+    private String execute(Suite suite, TestBlock test) throws IOException, InterruptedException {
+        for (Exchange exchange : Exchange.of(test)) {
+            String failure = exchange(suite, exchange.getRequest(), exchange.getAssertions());
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    private String exchange(Suite suite, Request request, List<Assertion> assertions)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(suite.url(request.getPath())))
+                .timeout(suite.requestTimeout);
+        RequestItem body = request.getBody();
+        HttpRequest.BodyPublisher publisher = body != null
+                ? HttpRequest.BodyPublishers.ofByteArray(suite.render(body.getValue()).getBytes(StandardCharsets.UTF_8))
+                : HttpRequest.BodyPublishers.noBody();
+        switch (request.getHttpMethod()) {
+            case GET:
+                builder.GET();
+                break;
+            case DELETE:
+                builder.DELETE();
+                break;
+            case POST:
+                builder.POST(publisher);
+                break;
+            case PUT:
+                builder.PUT(publisher);
+                break;
+        }
+        for (RequestItem item : request.getItems()) {
+            if (item.getKind() == RequestItem.Kind.HEADER) {
+                builder.header(item.getKey(), suite.render(item.getValue()));
+            }
+        }
+        for (Map.Entry<String, String> header : suite.headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        Set<String> jsonPaths = new LinkedHashSet<>();
+        Set<String> bodyPatterns = new LinkedHashSet<>();
+        for (Assertion assertion : assertions) {
+            if (assertion.getKind() == Assertion.Kind.JSON_EQUALS || assertion.getKind() == Assertion.Kind.JSON_CONTAINS) {
+                jsonPaths.add(assertion.getPath());
+            } else if (assertion.getKind() == Assertion.Kind.BODY_CONTAINS) {
+                bodyPatterns.add(assertion.getText());
+            }
+        }
+        MultiPatternMatcher bodyMatcher = bodyPatterns.isEmpty() ? null : new MultiPatternMatcher(bodyPatterns.toArray(new String[0]));
+        JsonPathMatcher json = jsonPaths.isEmpty() ? null : new JsonPathMatcher(jsonPaths.toArray(new String[0]));
+        HttpResponse<Void> response;
+        if (bodyMatcher == null && json == null) {
+            response = suite.client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+        } else {
+            BodyCheck check = bodyMatcher == null ? json : json == null ? bodyMatcher : BodyChecks.all(bodyMatcher, json);
+            response = suite.client.send(builder.build(), CheckingBodySubscriber.handler(check, suite.maxBody));
+        }
+
+        for (Assertion assertion : assertions) {
+            String failure = check(assertion, response, bodyMatcher, json);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    private static String check(Assertion assertion, HttpResponse<Void> response,
+                                MultiPatternMatcher body, JsonPathMatcher json) {
+        int status = response.statusCode();
+        switch (assertion.getKind()) {
+            case STATUS_EQUALS:
+                return status == assertion.getStatus() ? null
+                        : "expect status = " + assertion.getStatus() + ": was " + status;
+            case STATUS_RANGE:
+                return status >= assertion.getStatus() && status <= assertion.getRangeEnd() ? null
+                        : "Status code should be in range [" + assertion.getStatus() + ".." + assertion.getRangeEnd() + "]: was " + status;
+            case HEADER_EQUALS: {
+                String actual = response.headers().firstValue(assertion.getHeaderName()).orElse("");
+                return actual.equals(assertion.getText()) ? null
+                        : "expect header \"" + assertion.getHeaderName() + "\" = \"" + assertion.getText() + "\": was \"" + actual + "\"";
+            }
+            case HEADER_CONTAINS: {
+                String actual = response.headers().firstValue(assertion.getHeaderName()).orElse("");
+                return actual.contains(assertion.getText()) ? null
+                        : "expect header \"" + assertion.getHeaderName() + "\" contains \"" + assertion.getText() + "\": was \"" + actual + "\"";
+            }
+            case BODY_CONTAINS:
+                return body.found(assertion.getText()) ? null : body.describe(assertion.getText());
+            case JSON_EQUALS: {
+                Value expected = assertion.getExpected();
+                boolean matches;
+                switch (expected.getKind()) {
+                    case STRING:
+                        matches = json.hasValue(assertion.getPath(), expected.getStringValue());
+                        break;
+                    case NUMBER:
+                        matches = json.hasValue(assertion.getPath(), expected.intValue());
+                        break;
+                    default:
+                        matches = json.hasValue(assertion.getPath(), expected.booleanValue());
+                        break;
+                }
+                return matches ? null : json.describe(assertion.getPath());
+            }
+            default:
+                return json.valueContains(assertion.getPath(), assertion.getText()) ? null : json.describe(assertion.getPath());
+        }
+    }
+
+    /**
+     * Config and variables of a program, bound once per run as the
+     * generated class binds them when it initializes
+     */
+    private final class Suite {
+        final Map<String, String> variables = new HashMap<>();
+        final Map<String, String> headers = new LinkedHashMap<>();
+        final String base;
+        final Duration requestTimeout;
+        final long maxBody;
+        final HttpClient client;
+
+        Suite(Program program) {
+            for (Variable variable : program.getVariables()) {
+                variables.put(variable.getName(), Env.get(variable.getName(), variable.getValue().asText()));
+            }
+            String baseUrl = "http://localhost:8080";
+            Duration timeout = Duration.ofSeconds(10);
+            Duration connectTimeout = Duration.ofSeconds(5);
+            HttpClient.Version version = null;
+            int prewarm = 0;
+            long limit = Long.MAX_VALUE;
+            if (program.getConfig() != null) {
+                boolean hasBase = false;
+                for (ConfigItem item : program.getConfig().getItems()) {
+                    switch (item.getKind()) {
+                        case BASE_URL:
+                            if (!hasBase) {
+                                baseUrl = item.getValue();
+                                hasBase = true;
+                            }
+                            break;
+                        case HEADER:
+                            headers.put(item.getKey(), render(item.getValue()));
+                            break;
+                        default:
+                            switch (item.getKey()) {
+                                case "request_timeout":
+                                    timeout = Duration.ofMillis(Long.parseLong(item.getValue()));
+                                    break;
+                                case "connect_timeout":
+                                    connectTimeout = Duration.ofMillis(Long.parseLong(item.getValue()));
+                                    break;
+                                case "http_version":
+                                    version = "2".equals(item.getValue()) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+                                    break;
+                                case "prewarm":
+                                    prewarm = Integer.parseInt(item.getValue());
+                                    break;
+                                case "max_body":
+                                    limit = Long.parseLong(item.getValue());
+                                    break;
+                                default:
+                                    break;
+                            }
+                            break;
+                    }
+                }
+            }
+            base = Env.get("base_url", baseUrl);
+            requestTimeout = timeout;
+            maxBody = limit;
+            client = client(connectTimeout, version, prewarm);
+        }
+
+        private HttpClient client(Duration connectTimeout, HttpClient.Version version, int prewarm) {
+            String key = connectTimeout.toMillis() + " " + version;
+            InstrumentedHttpClient client = clients.computeIfAbsent(key, k -> {
+                HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(connectTimeout);
+                if (version != null) {
+                    builder.version(version);
+                }
+                return new InstrumentedHttpClient(builder.build());
+            });
+            if (prewarm > 0 && prewarmed.add(key + " " + base)) {
+                client.prewarm(URI.create(base), prewarm, requestTimeout);
+            }
+            return client;
+        }
+
+        String render(String text) {
+            return templates.computeIfAbsent(text, Template::compile).render(variables, (name, offset) -> { });
+        }
+
+        String url(String path) {
+            String rendered = render(path);
+            if (path.startsWith("http://") || path.startsWith("https://")) {
+                return rendered;
+            }
+            Template template = templates.get(path);
+            if (template.size() > 0 && template.literal(0).isEmpty() && variables.containsKey(template.name(0))) {
+                // A variable at the start may hold an absolute URL
+                return Env.resolve(base, rendered);
+            }
+            return base + rendered;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.testlang.interpreter;
+
+/**
+ * Outcome of one test run by the {@link Interpreter}
+ */
+public final class TestResult {
+    private final String name;
+    private final boolean passed;
+    private final long nanos;
+    private final String message;
+
+    TestResult(String name, boolean passed, long nanos, String message) {
+        this.name = name;
+        this.passed = passed;
+        this.nanos = nanos;
+        this.message = message;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Why the test failed; null if it passed
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "TestResult{name='" + name + "', passed=" + passed + ", message=" + message + '}';
+    }
+}
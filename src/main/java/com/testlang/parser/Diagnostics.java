@@ -0,0 +1,90 @@
+package com.testlang.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lexical and syntax errors collected while a file is parsed.
+ *
+ * The lexers report an illegal character and skip it, and the parser
+ * reports each syntax error and recovers, so one pass finds every error
+ * in the file.
+ */
+public class Diagnostics {
+    public enum Kind {
+        LEXICAL,
+        SYNTAX
+    }
+
+    public static final class Diagnostic {
+        private final Kind kind;
+        private final String file;
+        private final int line;
+        private final int column;
+        private final String message;
+
+        Diagnostic(Kind kind, String file, int line, int column, String message) {
+            this.kind = kind;
+            this.file = file;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * {@code file:line:column: kind error: message}, the format most editors link
+         */
+        @Override
+        public String toString() {
+            return (file != null ? file + ":" : "") + line + ":" + column + ": " +
+                    (kind == Kind.LEXICAL ? "lexical" : "syntax") + " error: " + message;
+        }
+    }
+
+    private final String file;
+    private final List<Diagnostic> errors = new ArrayList<>();
+
+    public Diagnostics(String file) {
+        this.file = file;
+    }
+
+    public void report(Kind kind, int line, int column, String message) {
+        errors.add(new Diagnostic(kind, file, line, column, message));
+    }
+
+    /**
+     * Adds the errors of another file, such as an imported one
+     */
+    public void addAll(Diagnostics other) {
+        errors.addAll(other.errors);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public List<Diagnostic> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+}
@@ -0,0 +1,422 @@
+package com.testlang.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+
+/**
+ * Hand-written lexer that returns the same tokens as the JFlex {@link Lexer}.
+ *
+ * Works on a char array with a direct switch on each character, decodes
+ * escapes while it scans a string, and never allocates for keywords or
+ * operators. With interning on, each distinct identifier is one String
+ * shared by all of its occurrences.
+ *
+ * Positions and errors match {@link Lexer}: lines and columns are 1-based,
+ * columns count UTF-16 units, and CR LF, CR, LF, VT, FF, NEL, U+2028 and
+ * U+2029 each end a line.
+ */
+public class FastLexer implements Scanner {
+    private static final String[] KEYWORDS = {
+        "config", "base_url", "header", "let", "test", "GET", "POST", "PUT", "DELETE",
+        "expect", "status", "body", "contains", "in", "json", "true", "false", "import", "tags"
+    };
+    private static final int[] KEYWORD_SYMBOLS = {
+        sym.CONFIG, sym.BASE_URL, sym.HEADER, sym.LET, sym.TEST, sym.GET, sym.POST, sym.PUT, sym.DELETE,
+        sym.EXPECT, sym.STATUS, sym.BODY, sym.CONTAINS, sym.IN, sym.JSON, sym.TRUE, sym.FALSE, sym.IMPORT, sym.TAGS
+    };
+
+    private final char[] buffer;
+    private final int end;
+    private final boolean intern;
+    private int pos;
+    private int line;      // 0-based line of pos
+    private int lineStart; // index where the line of pos starts
+    private boolean afterCr;
+
+    // Open-addressed table of keywords and, when interning, identifiers
+    private String[] names = new String[64];
+    private int[] symbols = new int[64];
+    private int[] hashes = new int[64];
+    private int size;
+
+    private final StringBuilder text = new StringBuilder();
+    private Diagnostics diagnostics;
+
+    public FastLexer(char[] buffer, int offset, int length, boolean intern) {
+        this.buffer = buffer;
+        this.pos = offset;
+        this.lineStart = offset;
+        this.end = offset + length;
+        this.intern = intern;
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            add(KEYWORDS[i], KEYWORDS[i].hashCode(), KEYWORD_SYMBOLS[i]);
+        }
+    }
+
+    public FastLexer(String input) {
+        this(input.toCharArray(), 0, input.length(), true);
+    }
+
+    public FastLexer(Reader reader) throws IOException {
+        this(readAll(reader));
+    }
+
+    /**
+     * A lexer over UTF-8 bytes. Pure ASCII input is widened directly,
+     * without going through a decoder.
+     */
+    public static FastLexer fromUtf8(byte[] bytes) {
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                String decoded = new String(bytes, StandardCharsets.UTF_8);
+                return new FastLexer(decoded.toCharArray(), 0, decoded.length(), true);
+            }
+            chars[i] = (char) b;
+        }
+        return new FastLexer(chars, 0, chars.length, true);
+    }
+
+    /**
+     * Report illegal characters to {@code diagnostics} and skip them,
+     * instead of throwing an Error on the first one
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    public int getLine() {
+        return line + 1;
+    }
+
+    public int getColumn() {
+        return pos - lineStart + 1;
+    }
+
+    @Override
+    public Symbol next_token() {
+        while (pos < end) {
+            char c = buffer[pos];
+            int left = line + 1;
+            int right = pos - lineStart + 1;
+            switch (c) {
+                case ' ':
+                case '\t':
+                    pos++;
+                    afterCr = false;
+                    break;
+                case '\n':
+                case '\r':
+                case '\f':
+                    newline(c);
+                    pos++;
+                    break;
+                case '{':
+                    return operator(sym.LBRACE, left, right, 1);
+                case '}':
+                    return operator(sym.RBRACE, left, right, 1);
+                case '(':
+                    return operator(sym.LPAREN, left, right, 1);
+                case ')':
+                    return operator(sym.RPAREN, left, right, 1);
+                case ',':
+                    return operator(sym.COMMA, left, right, 1);
+                case ';':
+                    return operator(sym.SEMICOLON, left, right, 1);
+                case '=':
+                    return operator(sym.EQUALS, left, right, 1);
+                case '.':
+                    if (pos + 1 < end && buffer[pos + 1] == '.') {
+                        return operator(sym.DOTDOT, left, right, 2);
+                    }
+                    illegal(left, right);
+                    break;
+                case '/':
+                    if (pos + 1 < end && buffer[pos + 1] == '/') {
+                        skipComment();
+                        break;
+                    }
+                    illegal(left, right);
+                    break;
+                case '"':
+                    Symbol string = string(left, right);
+                    if (string != null) {
+                        return string;
+                    }
+                    illegal(left, right);
+                    break;
+                default:
+                    if (c >= '0' && c <= '9') {
+                        return number(left, right);
+                    }
+                    if (isLetter(c)) {
+                        return identifier(left, right);
+                    }
+                    // Includes unpaired surrogates
+                    illegal(left, right);
+                    if (c == '\u000B' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                        line++;
+                        lineStart = pos;
+                    }
+                    break;
+            }
+        }
+        return new Symbol(sym.EOF, line + 1, pos - lineStart + 1);
+    }
+
+    private Symbol operator(int type, int left, int right, int length) {
+        pos += length;
+        afterCr = false;
+        return new Symbol(type, left, right);
+    }
+
+    private Symbol number(int left, int right) {
+        int start = pos;
+        long value = 0;
+        while (pos < end && buffer[pos] >= '0' && buffer[pos] <= '9') {
+            if (value <= Integer.MAX_VALUE) {
+                value = value * 10 + (buffer[pos] - '0');
+            }
+            pos++;
+        }
+        afterCr = false;
+        if (value > Integer.MAX_VALUE) {
+            String digits = new String(buffer, start, pos - start);
+            if (diagnostics == null) {
+                // Fails the same way as the JFlex lexer
+                Integer.parseInt(digits);
+            }
+            diagnostics.report(Diagnostics.Kind.LEXICAL, left, right, "Number too large: " + digits);
+            value = 0;
+        }
+        return new Symbol(sym.NUMBER, left, right, (int) value);
+    }
+
+    private Symbol identifier(int left, int right) {
+        int start = pos;
+        int hash = 0;
+        while (pos < end && isLetterOrDigit(buffer[pos])) {
+            hash = 31 * hash + buffer[pos];
+            pos++;
+        }
+        afterCr = false;
+        int length = pos - start;
+        int slot = find(start, length, hash);
+        if (names[slot] != null) {
+            if (symbols[slot] != sym.IDENTIFIER) {
+                return new Symbol(symbols[slot], left, right);
+            }
+            return new Symbol(sym.IDENTIFIER, left, right, names[slot]);
+        }
+        String name = new String(buffer, start, length);
+        if (intern) {
+            add(name, hash, sym.IDENTIFIER);
+        }
+        return new Symbol(sym.IDENTIFIER, left, right, name);
+    }
+
+    /**
+     * A "..." or """...""" literal. Whichever form matches more input wins,
+     * as in JFlex; a triple-quoted literal that is not closed by """ falls
+     * back to the empty string "". Null when the '"' starts no literal.
+     */
+    private Symbol string(int left, int right) {
+        if (pos + 2 < end && buffer[pos + 1] == '"' && buffer[pos + 2] == '"') {
+            int close = scanContent(pos + 3);
+            if (close >= 0 && close + 2 < end && buffer[close + 1] == '"' && buffer[close + 2] == '"') {
+                return stringToken(left, right, pos + 3, close, close + 3);
+            }
+        }
+        int close = scanContent(pos + 1);
+        if (close < 0) {
+            return null;
+        }
+        return stringToken(left, right, pos + 1, close, close + 1);
+    }
+
+    /**
+     * Index of the '"' that ends the content starting at {@code from},
+     * or -1 if the content runs into a line break, a bad escape or the end
+     */
+    private int scanContent(int from) {
+        int i = from;
+        while (i < end) {
+            char c = buffer[i];
+            if (c == '"') {
+                return i;
+            }
+            if (c == '\\') {
+                if (i + 1 < end && (buffer[i + 1] == '"' || buffer[i + 1] == '\\')) {
+                    i += 2;
+                    continue;
+                }
+                return -1;
+            }
+            if (c == '\r' || c == '\n') {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private Symbol stringToken(int left, int right, int from, int to, int next) {
+        String value;
+        int escape = indexOf('\\', from, to);
+        if (escape < 0) {
+            value = new String(buffer, from, to - from);
+        } else {
+            // Escapes are decoded in the same pass that copies the content
+            text.setLength(0);
+            text.append(buffer, from, escape - from);
+            for (int i = escape; i < to; i++) {
+                char c = buffer[i];
+                if (c == '\\') {
+                    c = buffer[++i];
+                }
+                text.append(c);
+            }
+            value = text.toString();
+        }
+        track(pos, next);
+        pos = next;
+        return new Symbol(sym.STRING, left, right, value);
+    }
+
+    private void skipComment() {
+        int start = pos;
+        while (pos < end && buffer[pos] != '\r' && buffer[pos] != '\n') {
+            pos++;
+        }
+        track(start, pos);
+    }
+
+    /**
+     * Updates the line and column over characters that may contain the
+     * line terminators that strings and comments can hold
+     */
+    private void track(int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = buffer[i];
+            if (c < ' ' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                if (c == '\u000B' || c == '\f' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    line++;
+                    lineStart = i + 1;
+                }
+            }
+        }
+        afterCr = false;
+    }
+
+    private void newline(char c) {
+        if (c == '\n' && afterCr) {
+            lineStart = pos + 1;
+            afterCr = false;
+            return;
+        }
+        line++;
+        lineStart = pos + 1;
+        afterCr = c == '\r';
+    }
+
+    /**
+     * Reports the character at pos and skips it, or throws when there is
+     * no one to report to
+     */
+    private void illegal(int left, int right) {
+        int length = Character.charCount(Character.codePointAt(buffer, pos, end));
+        String character = new String(buffer, pos, length);
+        if (diagnostics == null) {
+            throw new Error("Line " + left + ", Column " + right + ": Illegal character <" + character + ">");
+        }
+        diagnostics.report(Diagnostics.Kind.LEXICAL, left, right, "Illegal character <" + character + ">");
+        pos += length;
+        afterCr = false;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int find(int start, int length, int hash) {
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null) {
+            if (hashes[slot] == hash && equals(names[slot], start, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean equals(String name, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(String name, int hash, int symbol) {
+        if ((size + 1) * 2 > names.length) {
+            grow();
+        }
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = name;
+        hashes[slot] = hash;
+        symbols[slot] = symbol;
+        size++;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        int[] oldSymbols = symbols;
+        names = new String[oldNames.length * 2];
+        hashes = new int[names.length];
+        symbols = new int[names.length];
+        size = 0;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                add(oldNames[i], oldHashes[i], oldSymbols[i]);
+            }
+        }
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder input = new StringBuilder();
+        char[] chunk = new char[8192];
+        int n;
+        while ((n = reader.read(chunk)) > 0) {
+            input.append(chunk, 0, n);
+        }
+        return input.toString();
+    }
+}
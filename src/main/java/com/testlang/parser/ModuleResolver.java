@@ -0,0 +1,231 @@
+package com.testlang.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.testlang.ast.ConfigBlock;
+import com.testlang.ast.ConfigItem;
+import com.testlang.ast.Program;
+import com.testlang.ast.Variable;
+
+/**
+ * Loads a program together with the files it imports.
+ *
+ * Every file is parsed at most once per modification: parsed files are
+ * cached by canonical path and reparsed only when their mtime changes.
+ * The cache is shared by every load on this resolver, so a batch of
+ * suites that all import {@code common.test} parses it once, and loads
+ * from several threads wait for a single parse of the same file. The cache
+ * holds at most {@value #MAX_MODULES} files; past that, the least recently
+ * used quarter is dropped, so a long-lived service that loads many distinct
+ * files keeps only the ones in use.
+ *
+ * Imports are resolved against the directory of the importing file. An
+ * imported file contributes its config items and variables; the importing
+ * file's own base_url, settings, headers and variables override them.
+ */
+public class ModuleResolver {
+    static final int MAX_MODULES = 1024;
+
+    private final ParserPool parsers;
+    private final Map<Path, Module> modules = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * @param fastLexer parse with {@link FastLexer} instead of the JFlex lexer
+     */
+    public ModuleResolver(boolean fastLexer) {
+        this(new ParserPool(fastLexer));
+    }
+
+    public ModuleResolver(ParserPool parsers) {
+        this.parsers = parsers;
+    }
+
+    /**
+     * The program in {@code file} with its imports merged in.
+     *
+     * @param diagnostics receives the lexical and syntax errors of the file
+     *                    and of every file it imports
+     * @throws Exception for a parse error, a missing import, an imported
+     *                   file with tests, or an import cycle
+     */
+    public Program load(Path file, Diagnostics diagnostics) throws Exception {
+        return load(file, diagnostics, new HashSet<>());
+    }
+
+    /**
+     * Like {@link #load(Path, Diagnostics)}, and adds the canonical path of
+     * the file and of every file it imports to {@code files}
+     */
+    public Program load(Path file, Diagnostics diagnostics, Set<Path> files) throws Exception {
+        return load(file, new ArrayList<>(), new ArrayList<>(), diagnostics, files);
+    }
+
+    private Program load(Path file, List<Path> chain, List<String> names, Diagnostics diagnostics,
+                         Set<Path> files) throws Exception {
+        Path canonical = file.toRealPath();
+        files.add(canonical);
+        int cycle = chain.indexOf(canonical);
+        if (cycle >= 0) {
+            StringBuilder path = new StringBuilder();
+            for (int i = cycle; i < names.size(); i++) {
+                path.append(names.get(i)).append(" -> ");
+            }
+            throw new Exception("Import error: Cyclic import: " + path + file);
+        }
+
+        Module module = module(canonical, file.toString());
+        if (module.program == null) {
+            diagnostics.addAll(module.diagnostics);
+            throw new Exception("Parse error: " + module.diagnostics.getErrors().size() + " error(s)");
+        }
+        Program program = module.program;
+        if (program.getImports().isEmpty()) {
+            return program;
+        }
+
+        chain.add(canonical);
+        names.add(file.toString());
+        Map<String, ConfigItem> config = new LinkedHashMap<>();
+        Map<String, Variable> variables = new LinkedHashMap<>();
+        boolean hasConfig = false;
+        for (String name : program.getImports()) {
+            Path imported = file.resolveSibling(name);
+            Program importedProgram;
+            try {
+                importedProgram = load(imported, chain, names, diagnostics, files);
+            } catch (NoSuchFileException e) {
+                throw new Exception("Import error: Cannot find '" + name + "' imported from " + file);
+            }
+            if (!importedProgram.getTests().isEmpty()) {
+                throw new Exception("Import error: '" + name + "' imported from " + file + " must not contain tests");
+            }
+            hasConfig |= merge(importedProgram, config, variables);
+        }
+        hasConfig |= merge(program, config, variables);
+        chain.remove(chain.size() - 1);
+        names.remove(names.size() - 1);
+
+        return new Program(hasConfig ? new ConfigBlock(new ArrayList<>(config.values())) : null,
+                new ArrayList<>(variables.values()), program.getTests());
+    }
+
+    /**
+     * Adds the config items and variables of a program, replacing those
+     * with the same key
+     *
+     * @return whether the program has a config block
+     */
+    private static boolean merge(Program program, Map<String, ConfigItem> config, Map<String, Variable> variables) {
+        if (program.getConfig() != null) {
+            for (ConfigItem item : program.getConfig().getItems()) {
+                String key = item.getKind() == ConfigItem.Kind.BASE_URL ? "" : item.getKey();
+                config.remove(item.getKind() + ":" + key);
+                config.put(item.getKind() + ":" + key, item);
+            }
+        }
+        for (Variable variable : program.getVariables()) {
+            variables.remove(variable.getName());
+            variables.put(variable.getName(), variable);
+        }
+        return program.getConfig() != null;
+    }
+
+    /**
+     * The parsed file, from the cache unless it changed since it was parsed
+     */
+    private Module module(Path canonical, String name) throws Exception {
+        FileTime modified = Files.getLastModifiedTime(canonical);
+        Module module;
+        try {
+            module = modules.compute(canonical, (path, cached) ->
+                    cached != null && cached.modified.equals(modified) ? cached : parse(path, name, modified));
+        } catch (ParseFailure e) {
+            throw e.getCause();
+        }
+        module.used = clock.incrementAndGet();
+        if (modules.size() > MAX_MODULES) {
+            evict();
+        }
+        return module;
+    }
+
+    /**
+     * Drops the least recently used files until the cache is three quarters full
+     */
+    private void evict() {
+        // Sorted by a snapshot of the use times, which other loads keep updating
+        List<Map.Entry<Path, Long>> entries = new ArrayList<>();
+        for (Map.Entry<Path, Module> entry : modules.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue().used));
+        }
+        if (entries.size() <= MAX_MODULES) {
+            // Another thread evicted first
+            return;
+        }
+        entries.sort(Map.Entry.comparingByValue());
+        for (int i = 0; i < entries.size() - MAX_MODULES * 3 / 4; i++) {
+            modules.remove(entries.get(i).getKey());
+        }
+    }
+
+    private Module parse(Path path, String name, FileTime modified) {
+        Diagnostics diagnostics = new Diagnostics(name);
+        try {
+            String input = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            return new Module(modified, parsers.parse(new StringReader(input), diagnostics), diagnostics);
+        } catch (IOException e) {
+            throw new ParseFailure(e);
+        } catch (Exception e) {
+            if (!diagnostics.hasErrors()) {
+                throw new ParseFailure(e);
+            }
+            // Cached as well, so that every importer reports the same errors
+            return new Module(modified, null, diagnostics);
+        }
+    }
+
+    /**
+     * A parsed file; program is null if it has errors
+     */
+    private static final class Module {
+        final FileTime modified;
+        final Program program;
+        final Diagnostics diagnostics;
+        volatile long used;
+
+        Module(FileTime modified, Program program, Diagnostics diagnostics) {
+            this.modified = modified;
+            this.program = program;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    /**
+     * Carries a checked exception out of {@link Map#compute}
+     */
+    private static final class ParseFailure extends RuntimeException {
+        ParseFailure(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.testlang.parser;
+
+import java.io.Reader;
+
+import com.testlang.ast.Program;
+
+/**
+ * A bounded pool of reusable lexer and parser pairs.
+ *
+ * A JFlex lexer carries a 16 KB read buffer, so a pooled lexer is reset
+ * with {@code yyreset} for the next input instead of allocated again. The
+ * CUP parser resets its stack and program builder on every parse. With
+ * the fast lexer only the parser is pooled; a {@link FastLexer} works on
+ * the input's own characters. Safe to use from several threads.
+ */
+public class ParserPool {
+    private final boolean fastLexer;
+    private final Frontend[] free;
+    private int freeCount;
+    private long allocated;
+
+    /**
+     * @param fastLexer parse with {@link FastLexer} instead of the JFlex lexer
+     */
+    public ParserPool(boolean fastLexer) {
+        this(fastLexer, 64);
+    }
+
+    public ParserPool(boolean fastLexer, int maxPooled) {
+        this.fastLexer = fastLexer;
+        this.free = new Frontend[maxPooled];
+    }
+
+    /**
+     * Parses one file's text, reporting its lexical and syntax errors to
+     * {@code diagnostics}
+     *
+     * @throws Exception if the input has errors, or reading it fails
+     */
+    public Program parse(Reader input, Diagnostics diagnostics) throws Exception {
+        Frontend frontend = acquire();
+        try {
+            if (fastLexer) {
+                FastLexer lexer = new FastLexer(input);
+                lexer.setDiagnostics(diagnostics);
+                frontend.parser.setScanner(lexer);
+            } else {
+                frontend.lexer.yyreset(input);
+                frontend.lexer.setDiagnostics(diagnostics);
+                frontend.parser.setScanner(frontend.lexer);
+            }
+            frontend.parser.setDiagnostics(diagnostics);
+            return (Program) frontend.parser.parse().value;
+        } finally {
+            release(frontend);
+        }
+    }
+
+    private synchronized Frontend acquire() {
+        if (freeCount > 0) {
+            Frontend frontend = free[--freeCount];
+            free[freeCount] = null;
+            return frontend;
+        }
+        allocated++;
+        return new Frontend(fastLexer ? null : new Lexer(Reader.nullReader()));
+    }
+
+    private synchronized void release(Frontend frontend) {
+        if (freeCount < free.length) {
+            free[freeCount++] = frontend;
+        }
+    }
+
+    /**
+     * Number of lexer and parser pairs this pool has allocated so far
+     */
+    public synchronized long allocated() {
+        return allocated;
+    }
+
+    private static final class Frontend {
+        final Lexer lexer;
+        final parser parser = newParser();
+
+        Frontend(Lexer lexer) {
+            this.lexer = lexer;
+        }
+
+        /**
+         * CUP deprecates every parser constructor that takes no SymbolFactory,
+         * and also the DefaultSymbolFactory that matches the plain Symbols our
+         * lexers return. The scanner is bound before each parse.
+         */
+        @SuppressWarnings("deprecation")
+        private static parser newParser() {
+            return new parser();
+        }
+    }
+}
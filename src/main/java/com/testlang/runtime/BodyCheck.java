@@ -0,0 +1,31 @@
+package com.testlang.runtime;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An incremental check evaluated over the raw bytes of a response body
+ */
+public interface BodyCheck {
+    /**
+     * Consumes the next chunk of the body.
+     *
+     * @return true once the check has seen everything it needs
+     */
+    boolean update(ByteBuffer chunk);
+
+    /**
+     * Called once when the body ends or reading stops early
+     */
+    void complete();
+
+    /**
+     * Called before {@link #complete()} when the body was cut off at {@code limit} bytes
+     */
+    default void truncated(long limit) {
+    }
+
+    /**
+     * Clears all results so the check can be reused for another response
+     */
+    void reset();
+}
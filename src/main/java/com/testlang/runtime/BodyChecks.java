@@ -0,0 +1,66 @@
+package com.testlang.runtime;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Runs several body checks over the same stream of bytes
+ */
+public class BodyChecks implements BodyCheck {
+    private final BodyCheck[] checks;
+    private final boolean[] finished;
+    private int remaining;
+
+    private BodyChecks(BodyCheck[] checks) {
+        this.checks = checks;
+        this.finished = new boolean[checks.length];
+        this.remaining = checks.length;
+    }
+
+    public static BodyCheck all(BodyCheck... checks) {
+        return checks.length == 1 ? checks[0] : new BodyChecks(checks);
+    }
+
+    @Override
+    public boolean update(ByteBuffer chunk) {
+        int start = chunk.position();
+        int end = start;
+        for (int i = 0; i < checks.length; i++) {
+            if (finished[i]) {
+                continue;
+            }
+            // Each check reads the chunk from the same starting position
+            chunk.position(start);
+            if (checks[i].update(chunk)) {
+                finished[i] = true;
+                remaining--;
+            }
+            end = Math.max(end, chunk.position());
+        }
+        chunk.position(end);
+        return remaining == 0;
+    }
+
+    @Override
+    public void reset() {
+        for (BodyCheck check : checks) {
+            check.reset();
+        }
+        Arrays.fill(finished, false);
+        remaining = checks.length;
+    }
+
+    @Override
+    public void truncated(long limit) {
+        for (BodyCheck check : checks) {
+            check.truncated(limit);
+        }
+    }
+
+    @Override
+    public void complete() {
+        for (BodyCheck check : checks) {
+            check.complete();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.testlang.runtime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A shared cache of immutable values that holds at most a fixed number of
+ * entries.
+ *
+ * Lookups take no lock. When a new entry would go past the limit the cache
+ * is emptied first, so a long-lived JVM that compiles many suites (watch
+ * mode, the backend) keeps only the entries it has used since, and a suite
+ * whose entries all fit never loses one.
+ */
+final class BoundedCache<K, V> {
+    private final int maxEntries;
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+
+    BoundedCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    V get(K key, Function<K, V> create) {
+        V value = entries.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = create.apply(key);
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        V raced = entries.putIfAbsent(key, value);
+        return raced == null ? value : raced;
+    }
+}
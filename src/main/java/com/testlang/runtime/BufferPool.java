@@ -0,0 +1,58 @@
+package com.testlang.runtime;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bounded pool of reusable direct byte buffers of one size
+ */
+public class BufferPool {
+    private static final BufferPool SHARED = new BufferPool(64 * 1024, 256);
+
+    private final int bufferSize;
+    private final ByteBuffer[] free;
+    private int freeCount;
+    private long allocated;
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.free = new ByteBuffer[maxPooled];
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating one if the pool is empty
+     */
+    public synchronized ByteBuffer acquire() {
+        if (freeCount > 0) {
+            ByteBuffer buffer = free[--freeCount];
+            free[freeCount] = null;
+            return buffer;
+        }
+        allocated++;
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool; buffers beyond the pool's capacity are dropped
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (freeCount < free.length) {
+            free[freeCount++] = buffer;
+        }
+    }
+
+    /**
+     * Number of buffers this pool has allocated so far
+     */
+    public synchronized long allocated() {
+        return allocated;
+    }
+}
@@ -0,0 +1,108 @@
+package com.testlang.runtime;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body subscriber that feeds response bytes to a {@link BodyCheck} and
+ * cancels the response as soon as the check is satisfied.
+ *
+ * At most {@code maxBytes} bytes are read; a longer body is cut off there
+ * and the check is told it was truncated.
+ */
+public class CheckingBodySubscriber implements HttpResponse.BodySubscriber<Void> {
+    private final BodyCheck check;
+    private final long maxBytes;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private long received;
+    private boolean done;
+
+    public CheckingBodySubscriber(BodyCheck check) {
+        this(check, Long.MAX_VALUE);
+    }
+
+    public CheckingBodySubscriber(BodyCheck check, long maxBytes) {
+        this.check = check;
+        this.maxBytes = maxBytes;
+    }
+
+    public static HttpResponse.BodyHandler<Void> handler(BodyCheck check) {
+        return info -> new CheckingBodySubscriber(check);
+    }
+
+    public static HttpResponse.BodyHandler<Void> handler(BodyCheck check, long maxBytes) {
+        return info -> new CheckingBodySubscriber(check, maxBytes);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (done) {
+            return;
+        }
+        try {
+            for (ByteBuffer item : items) {
+                if (item.remaining() > maxBytes - received) {
+                    // Feed what fits under the cap and drop the rest of the body
+                    item.limit(item.position() + (int) (maxBytes - received));
+                    received = maxBytes;
+                    if (!check.update(item)) {
+                        check.truncated(maxBytes);
+                    }
+                    finish();
+                    subscription.cancel();
+                    return;
+                }
+                received += item.remaining();
+                if (check.update(item)) {
+                    // Everything the check needs has arrived; stop reading
+                    finish();
+                    subscription.cancel();
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            done = true;
+            subscription.cancel();
+            result.completeExceptionally(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!done) {
+            done = true;
+            result.completeExceptionally(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        finish();
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+        return result;
+    }
+
+    private void finish() {
+        if (!done) {
+            done = true;
+            check.complete();
+            result.complete(null);
+        }
+    }
+}
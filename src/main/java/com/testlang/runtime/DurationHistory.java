@@ -0,0 +1,178 @@
+package com.testlang.runtime;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Test durations and outcomes from earlier runs, one
+ * {@code name<TAB>milliseconds<TAB>passed|failed} line per test.
+ *
+ * Generated tests update the file after each run through
+ * {@link DurationRecorder}. The compiler reads it to balance
+ * {@code --shard} slices, and {@link HistoryOrderer} to run failed and
+ * long tests first. Shards that ran on other machines are folded back in
+ * with {@link #merge}. A duration is the average of the previous value and
+ * the latest run, so one slow run does not move a test to another shard
+ * on its own; the outcome is that of the latest run.
+ */
+public final class DurationHistory {
+    public static final String DEFAULT_FILE = ".testlang-durations";
+
+    private static final String FAILED = "failed";
+
+    private final Map<String, Long> durations;
+    private final Set<String> failed;
+
+    private DurationHistory(Map<String, Long> durations, Set<String> failed) {
+        this.durations = durations;
+        this.failed = failed;
+    }
+
+    /**
+     * The history in {@code file}; empty if the file does not exist
+     */
+    public static DurationHistory read(Path file) throws IOException {
+        Map<String, Long> durations = new TreeMap<>();
+        Set<String> failed = new TreeSet<>();
+        if (!Files.exists(file)) {
+            return new DurationHistory(durations, failed);
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (line.startsWith("#") || fields.length < 2) {
+                continue;
+            }
+            try {
+                durations.put(fields[0], Long.parseLong(fields[1].trim()));
+            } catch (NumberFormatException e) {
+                // Skip the line; the next update rewrites it
+                continue;
+            }
+            if (fields.length > 2 && FAILED.equals(fields[2].trim())) {
+                failed.add(fields[0]);
+            }
+        }
+        return new DurationHistory(durations, failed);
+    }
+
+    /**
+     * Milliseconds by test name
+     */
+    public Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(durations);
+    }
+
+    /**
+     * Names of the tests that failed in their latest run
+     */
+    public Set<String> getFailed() {
+        return Collections.unmodifiableSet(failed);
+    }
+
+    /**
+     * Merges measured durations and outcomes into the file. Processes that
+     * finish at the same time (several shards on one machine) take turns
+     * through a lock on {@code <file>.lock}, and the file is replaced
+     * atomically, so a reader never sees half of it.
+     */
+    public static void update(Path file, Map<String, Long> measured, Set<String> failures) throws IOException {
+        try (FileChannel channel = lock(file); FileLock lock = channel.lock()) {
+            DurationHistory history = read(file);
+            Map<String, Long> durations = history.durations;
+            for (Map.Entry<String, Long> entry : measured.entrySet()) {
+                Long previous = durations.get(entry.getKey());
+                durations.put(entry.getKey(), previous == null ? entry.getValue() : (previous + entry.getValue()) / 2);
+                if (failures.contains(entry.getKey())) {
+                    history.failed.add(entry.getKey());
+                } else {
+                    history.failed.remove(entry.getKey());
+                }
+            }
+            write(file, history);
+        }
+    }
+
+    /**
+     * Merges copies of the file that shards on other machines updated back
+     * into it. A test takes its duration and outcome from the copies that
+     * changed it; if several did, its duration is their average and it
+     * failed if it failed in any of them.
+     */
+    public static void merge(Path file, List<Path> copies) throws IOException {
+        try (FileChannel channel = lock(file); FileLock lock = channel.lock()) {
+            DurationHistory base = read(file);
+            Map<String, Long> sums = new TreeMap<>();
+            Map<String, Integer> counts = new TreeMap<>();
+            Set<String> failed = new TreeSet<>();
+            for (Path copy : copies) {
+                DurationHistory updated = read(copy);
+                for (Map.Entry<String, Long> entry : updated.durations.entrySet()) {
+                    String name = entry.getKey();
+                    boolean failedHere = updated.failed.contains(name);
+                    if (entry.getValue().equals(base.durations.get(name)) && failedHere == base.failed.contains(name)) {
+                        continue;
+                    }
+                    sums.merge(name, entry.getValue(), Long::sum);
+                    counts.merge(name, 1, Integer::sum);
+                    if (failedHere) {
+                        failed.add(name);
+                    }
+                }
+            }
+            for (Map.Entry<String, Long> entry : sums.entrySet()) {
+                base.durations.put(entry.getKey(), entry.getValue() / counts.get(entry.getKey()));
+                if (failed.contains(entry.getKey())) {
+                    base.failed.add(entry.getKey());
+                } else {
+                    base.failed.remove(entry.getKey());
+                }
+            }
+            write(file, base);
+        }
+    }
+
+    /**
+     * A short hash of the durations, equal on every machine that reads the
+     * same history, so that shards can check they split the same way
+     */
+    public String fingerprint() {
+        return String.format("%08x", durations.hashCode());
+    }
+
+    private static FileChannel lock(Path file) throws IOException {
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private static void write(Path file, DurationHistory history) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write("# TestLang++ test durations: name, milliseconds, outcome of the latest run");
+            out.newLine();
+            for (Map.Entry<String, Long> entry : history.durations.entrySet()) {
+                out.write(entry.getKey() + "\t" + entry.getValue() + "\t" +
+                        (history.failed.contains(entry.getKey()) ? FAILED : "passed"));
+                out.newLine();
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
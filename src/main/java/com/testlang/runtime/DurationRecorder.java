@@ -0,0 +1,73 @@
+package com.testlang.runtime;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * JUnit extension that times each generated test and merges the times and
+ * outcomes into a {@link DurationHistory} file after the class has run.
+ *
+ * Tests are recorded under their TestLang++ name, the method name without
+ * its {@code test_} prefix. An empty file name turns recording off.
+ */
+public class DurationRecorder implements BeforeTestExecutionCallback, AfterTestExecutionCallback, AfterAllCallback {
+    private static final String METHOD_PREFIX = "test_";
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(DurationRecorder.class);
+
+    private final String file;
+    private final Map<String, Long> measured = new ConcurrentHashMap<>();
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    public DurationRecorder(String file) {
+        this.file = file;
+    }
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put("start", System.nanoTime());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        Long start = context.getStore(NAMESPACE).remove("start", Long.class);
+        if (start != null) {
+            String name = testName(context.getRequiredTestMethod().getName());
+            measured.put(name, (System.nanoTime() - start) / 1_000_000);
+            if (context.getExecutionException().isPresent()) {
+                failed.add(name);
+            }
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (file.isEmpty() || measured.isEmpty()) {
+            return;
+        }
+        try {
+            DurationHistory.update(Paths.get(file), measured, failed);
+        } catch (IOException e) {
+            // The history only balances shards; a run does not fail over it
+            System.err.println("Cannot update test durations in " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The history file, or an empty string if recording is off
+     */
+    public String getFile() {
+        return file;
+    }
+
+    static String testName(String method) {
+        return method.startsWith(METHOD_PREFIX) ? method.substring(METHOD_PREFIX.length()) : method;
+    }
+}
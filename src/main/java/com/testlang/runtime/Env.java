@@ -0,0 +1,53 @@
+package com.testlang.runtime;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Values that generated tests bind when their class is initialized.
+ *
+ * A variable {@code name} is looked up as the system property
+ * {@code testlang.name}, then as the environment variable
+ * {@code TESTLANG_NAME}, and falls back to the value declared in the
+ * .test file. One compiled suite can then run against any environment:
+ * {@code mvn test -Dtestlang.base_url=https://staging.example.com -Dtestlang.tenant=acme}
+ *
+ * Variables share these names with the runtime's own settings, so a
+ * variable may not be named after one of {@link #RESERVED}, and two
+ * variables may not differ only in case.
+ */
+public final class Env {
+    public static final String PROPERTY_PREFIX = "testlang.";
+    public static final String ENV_PREFIX = "TESTLANG_";
+    /** Names the generated class reads for itself */
+    public static final Set<String> RESERVED = Set.of("base_url", "durations", "fail_fast");
+
+    private Env() {
+    }
+
+    public static String get(String name, String defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            value = System.getenv(envName(name));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * The environment variable a name is read from
+     */
+    public static String envName(String name) {
+        return ENV_PREFIX + name.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * The URL for a request path whose start is only known at run time:
+     * absolute URLs are used as they are, anything else is relative to {@code base}
+     */
+    public static String resolve(String base, String path) {
+        if (path.startsWith("http://") || path.startsWith("https://")) {
+            return path;
+        }
+        return base + path;
+    }
+}
@@ -0,0 +1,43 @@
+package com.testlang.runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestWatcher;
+
+/**
+ * JUnit extension that skips the remaining tests once a number of tests
+ * have failed, so a red build reports in minutes instead of after the
+ * whole suite.
+ *
+ * Failures are counted across every generated class in the JVM. Tests
+ * that are already running when the limit is reached still finish.
+ */
+public class FailFast implements ExecutionCondition, TestWatcher {
+    private static final AtomicInteger FAILURES = new AtomicInteger();
+
+    private final int maxFailures;
+
+    /**
+     * @param maxFailures failures after which to skip the rest; 0 for never
+     */
+    public FailFast(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        int failures = FAILURES.get();
+        if (maxFailures > 0 && failures >= maxFailures) {
+            return ConditionEvaluationResult.disabled("Fail-fast: " + failures + " test(s) failed already");
+        }
+        return ConditionEvaluationResult.enabled("Fail-fast limit not reached");
+    }
+
+    @Override
+    public void testFailed(ExtensionContext context, Throwable cause) {
+        FAILURES.incrementAndGet();
+    }
+}
@@ -0,0 +1,88 @@
+package com.testlang.runtime;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.MethodDescriptor;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.MethodOrdererContext;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+/**
+ * Orders generated tests by their {@link DurationHistory}.
+ *
+ * Tests that failed in their latest run go first, then tests with no
+ * history, then the rest by recorded duration. When JUnit runs tests in
+ * parallel the longest start first, so that no long test starts last and
+ * stretches the end of the run. Otherwise the shortest start first, so a
+ * sequential run gets through as many tests as possible early.
+ *
+ * The history file is the one of the class's {@link DurationRecorder}.
+ */
+public class HistoryOrderer implements MethodOrderer {
+    static final String PARALLEL = "junit.jupiter.execution.parallel.enabled";
+
+    @Override
+    public void orderMethods(MethodOrdererContext context) {
+        DurationHistory history;
+        try {
+            history = DurationHistory.read(Paths.get(file(context.getTestClass())));
+        } catch (IOException e) {
+            System.err.println("Cannot read test durations, keeping the default order: " + e.getMessage());
+            return;
+        }
+        boolean parallel = context.getConfigurationParameter(PARALLEL).map(Boolean::parseBoolean).orElse(false);
+        Map<String, Long> durations = history.getDurations();
+        Set<String> failed = history.getFailed();
+        context.getMethodDescriptors().sort(Comparator
+                .comparingInt((MethodDescriptor method) -> rank(name(method), durations, failed))
+                .thenComparingLong(method -> {
+                    long duration = durations.getOrDefault(name(method), 0L);
+                    return parallel ? -duration : duration;
+                })
+                .thenComparing(method -> method.getMethod().getName()));
+    }
+
+    /**
+     * Lets tests run concurrently when parallel execution is on; the
+     * default would force them onto one thread to keep the order
+     */
+    @Override
+    public Optional<ExecutionMode> getDefaultExecutionMode() {
+        return Optional.empty();
+    }
+
+    private static int rank(String name, Map<String, Long> durations, Set<String> failed) {
+        if (failed.contains(name)) {
+            return 0;
+        }
+        return durations.containsKey(name) ? 2 : 1;
+    }
+
+    private static String name(MethodDescriptor method) {
+        return DurationRecorder.testName(method.getMethod().getName());
+    }
+
+    private static String file(Class<?> testClass) {
+        for (Field field : testClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == DurationRecorder.class) {
+                try {
+                    field.setAccessible(true);
+                    String file = ((DurationRecorder) field.get(null)).getFile();
+                    if (!file.isEmpty()) {
+                        return file;
+                    }
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    // Fall back to the default file
+                }
+            }
+        }
+        return Env.get("durations", DurationHistory.DEFAULT_FILE);
+    }
+}
@@ -0,0 +1,183 @@
+package com.testlang.runtime;
+
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.InetAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * HttpClient wrapper used by generated tests.
+ *
+ * Counts requests and the protocol version of every response, and can
+ * pre-warm connections before the first test runs. The JDK client does
+ * not expose which pooled connection served a request, so the summary
+ * reports requests, pre-opened connections and the requested pool
+ * settings. The JDK reads those once per JVM, when its first client is
+ * built, so they are not necessarily the ones applied.
+ */
+public class InstrumentedHttpClient extends HttpClient {
+    private final HttpClient delegate;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLongArray versions = new AtomicLongArray(Version.values().length);
+    private volatile int prewarmed;
+
+    public InstrumentedHttpClient(HttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Resolves the host of {@code base} and opens up to {@code connections}
+     * connections to it by sending that many concurrent HEAD requests.
+     * The connections go back to the client's pool for the tests to reuse.
+     *
+     * @return the number of pre-warm requests that got a response
+     */
+    public int prewarm(URI base, int connections, Duration timeout) {
+        try {
+            InetAddress.getAllByName(base.getHost());
+        } catch (IOException e) {
+            System.err.println("Pre-warm: cannot resolve " + base.getHost() + ": " + e.getMessage());
+            return 0;
+        }
+        List<CompletableFuture<HttpResponse<Void>>> pending = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            HttpRequest request = HttpRequest.newBuilder(base)
+                    .timeout(timeout)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            pending.add(delegate.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int opened = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : pending) {
+            try {
+                response.join();
+                opened++;
+            } catch (CompletionException e) {
+                // The connection could not be opened; the tests will report the real error
+            }
+        }
+        prewarmed = opened;
+        return opened;
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder("HTTP client: ").append(requests.get()).append(" request(s)");
+        if (failures.get() > 0) {
+            summary.append(", ").append(failures.get()).append(" failed");
+        }
+        for (Version version : Version.values()) {
+            long count = versions.get(version.ordinal());
+            if (count > 0) {
+                summary.append(", ").append(count).append(' ').append(version);
+            }
+        }
+        summary.append("; ").append(prewarmed).append(" connection(s) pre-warmed");
+        summary.append("; requested pool size ").append(System.getProperty("jdk.httpclient.connectionPoolSize", "unbounded"));
+        summary.append(", keep-alive ").append(System.getProperty("jdk.httpclient.keepalive.timeout", "1200")).append('s');
+        summary.append(" (applied only if set before the JVM's first HttpClient)");
+        return summary.toString();
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        requests.incrementAndGet();
+        try {
+            return record(delegate.send(request, handler));
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        requests.incrementAndGet();
+        return track(delegate.sendAsync(request, handler));
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        requests.incrementAndGet();
+        return track(delegate.sendAsync(request, handler, pushPromiseHandler));
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> track(CompletableFuture<HttpResponse<T>> future) {
+        return future.whenComplete((response, error) -> {
+            if (error != null) {
+                failures.incrementAndGet();
+            } else {
+                record(response);
+            }
+        });
+    }
+
+    private <T> HttpResponse<T> record(HttpResponse<T> response) {
+        versions.incrementAndGet(response.version().ordinal());
+        return response;
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return delegate.executor();
+    }
+}
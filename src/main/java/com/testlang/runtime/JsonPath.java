@@ -0,0 +1,94 @@
+package com.testlang.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A simple JSON path such as {@code $.user.id}, {@code $.items[0].name}
+ * or {@code $["odd key"]}
+ */
+public final class JsonPath {
+    private final String text;
+    private final Object[] segments; // String for object keys, Integer for array indexes
+
+    private JsonPath(String text, Object[] segments) {
+        this.text = text;
+        this.segments = segments;
+    }
+
+    public static JsonPath parse(String text) {
+        if (!text.startsWith("$")) {
+            throw new IllegalArgumentException("JSON path must start with '$': " + text);
+        }
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                int start = ++i;
+                while (i < text.length() && text.charAt(i) != '.' && text.charAt(i) != '[') {
+                    i++;
+                }
+                if (i == start) {
+                    throw new IllegalArgumentException("Empty key in JSON path: " + text);
+                }
+                segments.add(text.substring(start, i));
+            } else if (c == '[') {
+                int close = text.indexOf(']', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '[' in JSON path: " + text);
+                }
+                String inner = text.substring(i + 1, close);
+                if (inner.length() >= 2 && (inner.charAt(0) == '"' || inner.charAt(0) == '\'')
+                        && inner.charAt(inner.length() - 1) == inner.charAt(0)) {
+                    segments.add(inner.substring(1, inner.length() - 1));
+                } else {
+                    try {
+                        int index = Integer.parseInt(inner);
+                        if (index < 0) {
+                            throw new NumberFormatException();
+                        }
+                        segments.add(index);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid index '" + inner + "' in JSON path: " + text);
+                    }
+                }
+                i = close + 1;
+            } else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' in JSON path: " + text);
+            }
+        }
+        return new JsonPath(text, segments.toArray());
+    }
+
+    public int length() {
+        return segments.length;
+    }
+
+    /**
+     * Segment {@code depth}: a String object key or an Integer array index
+     */
+    public Object segment(int depth) {
+        return segments[depth];
+    }
+
+    /**
+     * Returns true if segment {@code depth} is the given object key
+     */
+    boolean matchesKey(int depth, String key) {
+        return key.equals(segments[depth]);
+    }
+
+    /**
+     * Returns true if segment {@code depth} is the given array index
+     */
+    boolean matchesIndex(int depth, int index) {
+        Object segment = segments[depth];
+        return segment instanceof Integer && (Integer) segment == index;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,577 @@
+package com.testlang.runtime;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming JSON path evaluator.
+ *
+ * Tokenizes the body byte by byte without building a String or an object
+ * tree. Only the values at the requested paths (and the object keys on the
+ * way to them) are decoded, and reading stops as soon as every path has
+ * been resolved. Objects and arrays that contain none of the requested
+ * paths are skipped by only tracking brackets and strings.
+ */
+public class JsonPathMatcher implements BodyCheck {
+    public enum Kind { STRING, NUMBER, BOOLEAN, NULL, OBJECT, ARRAY }
+
+    private static final int MAX_PATHS = 64;
+
+    // Tokenizer states
+    private static final int VALUE = 0;
+    private static final int OBJECT_FIRST = 1;
+    private static final int OBJECT_NEXT = 2;
+    private static final int COLON = 3;
+    private static final int ARRAY_FIRST = 4;
+    private static final int AFTER_VALUE = 5;
+    private static final int STRING = 6;
+    private static final int ESCAPE = 7;
+    private static final int UNICODE = 8;
+    private static final int NUMBER = 9;
+    private static final int LITERAL = 10;
+    private static final int DONE = 11;
+    private static final int SKIP = 12;
+    private static final int SKIP_STRING = 13;
+    private static final int SKIP_ESCAPE = 14;
+
+    // Parsed path sets are immutable and shared by every matcher for the same paths
+    private static final BoundedCache<List<String>, PathSet> PATH_SETS = new BoundedCache<>(1024);
+
+    private final JsonPath[] paths;
+    private final Map<String, Integer> indexByPath;
+    private final Kind[] kinds;
+    private final String[] values;
+    private final long allPaths;
+    private long resolved;
+    private String error;
+    private long truncatedAt = -1;
+
+    // Open containers; masks[i] holds the paths that continue below container i
+    private boolean[] isObject = new boolean[16];
+    private long[] masks = new long[16];
+    private int[] indexes = new int[16];
+    private String[] keys = new String[16];
+    private int depth;
+
+    private int state = VALUE;
+    private boolean inKey;
+    private boolean capturing;
+    private long valueTargets;
+    private final StringBuilder text = new StringBuilder();
+    private byte[] pending = new byte[64];
+    private int pendingLength;
+    private int unicodeDigits;
+    private int unicodeValue;
+    private String literal;
+    private int literalPos;
+    private int skipDepth;
+    private long offset;
+
+    public JsonPathMatcher(String... paths) {
+        PathSet pathSet = PATH_SETS.get(Arrays.asList(paths.clone()), PathSet::new);
+        this.paths = pathSet.paths;
+        this.indexByPath = pathSet.indexByPath;
+        this.kinds = new Kind[this.paths.length];
+        this.values = new String[this.paths.length];
+        this.allPaths = this.paths.length == MAX_PATHS ? -1L : (1L << this.paths.length) - 1;
+    }
+
+    /**
+     * Evaluates an already materialized body
+     */
+    public void evaluate(String body) {
+        if (!update(ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)))) {
+            complete();
+        }
+    }
+
+    @Override
+    public boolean update(ByteBuffer chunk) {
+        if (isFinished()) {
+            return true;
+        }
+        while (chunk.hasRemaining()) {
+            if (state >= SKIP) {
+                skip(chunk);
+                continue;
+            }
+            int b = chunk.get() & 0xFF;
+            offset++;
+            switch (state) {
+                case VALUE:
+                    if (!isWhitespace(b)) {
+                        beginValue(b);
+                    }
+                    break;
+                case OBJECT_FIRST:
+                    if (b == '}') {
+                        endContainer();
+                    } else {
+                        beginKey(b);
+                    }
+                    break;
+                case OBJECT_NEXT:
+                    beginKey(b);
+                    break;
+                case COLON:
+                    if (b == ':') {
+                        state = VALUE;
+                    } else if (!isWhitespace(b)) {
+                        fail(b);
+                    }
+                    break;
+                case ARRAY_FIRST:
+                    if (b == ']') {
+                        endContainer();
+                    } else if (!isWhitespace(b)) {
+                        beginValue(b);
+                    }
+                    break;
+                case AFTER_VALUE:
+                    afterValue(b);
+                    break;
+                case STRING:
+                    if (!capturing) {
+                        // Fast path over strings nobody asked for
+                        while (b != '"' && b != '\\' && chunk.hasRemaining()) {
+                            b = chunk.get() & 0xFF;
+                            offset++;
+                        }
+                        if (b != '"' && b != '\\') {
+                            break;
+                        }
+                    }
+                    if (b == '"') {
+                        endString();
+                    } else if (b == '\\') {
+                        state = ESCAPE;
+                    } else if (capturing) {
+                        appendByte(b);
+                    }
+                    break;
+                case ESCAPE:
+                    escape(b);
+                    break;
+                case UNICODE:
+                    unicodeDigit(b);
+                    break;
+                case NUMBER:
+                    if ((b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-') {
+                        if (capturing) {
+                            text.append((char) b);
+                        }
+                    } else {
+                        endValue(Kind.NUMBER);
+                        if (state != DONE) {
+                            afterValue(b);
+                        } else if (!isWhitespace(b)) {
+                            fail(b);
+                        }
+                    }
+                    break;
+                case LITERAL:
+                    if (b != literal.charAt(literalPos)) {
+                        fail(b);
+                    } else if (++literalPos == literal.length()) {
+                        endValue(literal.charAt(0) == 'n' ? Kind.NULL : Kind.BOOLEAN);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (isFinished()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(kinds, null);
+        Arrays.fill(values, null);
+        resolved = 0;
+        error = null;
+        truncatedAt = -1;
+        Arrays.fill(keys, 0, depth, null);
+        depth = 0;
+        state = VALUE;
+        capturing = false;
+        valueTargets = 0;
+        text.setLength(0);
+        pendingLength = 0;
+        offset = 0;
+    }
+
+    @Override
+    public void truncated(long limit) {
+        truncatedAt = limit;
+    }
+
+    @Override
+    public void complete() {
+        // A bare top-level number has no terminating byte
+        if (state == NUMBER && depth == 0) {
+            endValue(Kind.NUMBER);
+        }
+    }
+
+    public boolean isFound(String path) {
+        return kinds[index(path)] != null;
+    }
+
+    public Kind kind(String path) {
+        return kinds[index(path)];
+    }
+
+    /**
+     * Returns the decoded string, the number or literal text, or null for containers
+     */
+    public String value(String path) {
+        return values[index(path)];
+    }
+
+    public boolean hasValue(String path, String expected) {
+        int i = index(path);
+        return kinds[i] == Kind.STRING && expected.equals(values[i]);
+    }
+
+    public boolean hasValue(String path, long expected) {
+        int i = index(path);
+        if (kinds[i] != Kind.NUMBER) {
+            return false;
+        }
+        try {
+            return new BigDecimal(values[i]).compareTo(BigDecimal.valueOf(expected)) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public boolean hasValue(String path, boolean expected) {
+        int i = index(path);
+        return kinds[i] == Kind.BOOLEAN && String.valueOf(expected).equals(values[i]);
+    }
+
+    public boolean valueContains(String path, String expected) {
+        int i = index(path);
+        return kinds[i] == Kind.STRING && values[i].contains(expected);
+    }
+
+    /**
+     * Describes what was found at a path, for assertion messages
+     */
+    public String describe(String path) {
+        int i = index(path);
+        if (kinds[i] == null) {
+            if (error != null) {
+                return path + ": " + error;
+            }
+            String message = "JSON path " + path + " not found in response body";
+            return truncatedAt < 0 ? message : message + " (body truncated at " + truncatedAt + " bytes by max_body)";
+        }
+        switch (kinds[i]) {
+            case STRING:
+                return path + " was \"" + values[i] + "\"";
+            case OBJECT:
+                return path + " was an object";
+            case ARRAY:
+                return path + " was an array";
+            default:
+                return path + " was " + values[i];
+        }
+    }
+
+    private int index(String path) {
+        Integer i = indexByPath.get(path);
+        if (i == null) {
+            throw new IllegalArgumentException("JSON path was not registered with this matcher: " + path);
+        }
+        return i;
+    }
+
+    private boolean isFinished() {
+        return state == DONE || resolved == allPaths;
+    }
+
+    private void beginValue(int b) {
+        long candidates = childCandidates() & ~resolved;
+        long targets = 0;
+        long prefixes = 0;
+        for (long m = candidates; m != 0; m &= m - 1) {
+            int p = Long.numberOfTrailingZeros(m);
+            if (paths[p].length() == depth) {
+                targets |= 1L << p;
+            } else {
+                prefixes |= 1L << p;
+            }
+        }
+
+        valueTargets = targets;
+        capturing = targets != 0;
+        text.setLength(0);
+        pendingLength = 0;
+        switch (b) {
+            case '{':
+            case '[':
+                record(targets, b == '{' ? Kind.OBJECT : Kind.ARRAY, null);
+                if (prefixes == 0) {
+                    // Nothing below this container is needed
+                    skipDepth = 1;
+                    state = SKIP;
+                } else {
+                    push(b == '{', prefixes);
+                    state = b == '{' ? OBJECT_FIRST : ARRAY_FIRST;
+                }
+                break;
+            case '"':
+                inKey = false;
+                state = STRING;
+                break;
+            case 't':
+            case 'f':
+            case 'n':
+                literal = b == 't' ? "true" : b == 'f' ? "false" : "null";
+                literalPos = 1;
+                state = LITERAL;
+                break;
+            default:
+                if (b == '-' || (b >= '0' && b <= '9')) {
+                    if (capturing) {
+                        text.append((char) b);
+                    }
+                    state = NUMBER;
+                } else {
+                    fail(b);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Paths that may match the value about to start under the innermost container
+     */
+    private long childCandidates() {
+        if (depth == 0) {
+            return allPaths;
+        }
+        int level = depth - 1;
+        long result = 0;
+        for (long m = masks[level]; m != 0; m &= m - 1) {
+            int p = Long.numberOfTrailingZeros(m);
+            boolean match = isObject[level]
+                    ? keys[level] != null && paths[p].matchesKey(level, keys[level])
+                    : paths[p].matchesIndex(level, indexes[level]);
+            if (match) {
+                result |= 1L << p;
+            }
+        }
+        return result;
+    }
+
+    private void beginKey(int b) {
+        if (b == '"') {
+            inKey = true;
+            capturing = masks[depth - 1] != 0;
+            text.setLength(0);
+            pendingLength = 0;
+            state = STRING;
+        } else if (!isWhitespace(b)) {
+            fail(b);
+        }
+    }
+
+    private void endString() {
+        String value = null;
+        if (capturing) {
+            flushPending();
+            value = text.toString();
+        }
+        if (inKey) {
+            keys[depth - 1] = value;
+            state = COLON;
+        } else {
+            endValue(Kind.STRING, value);
+        }
+    }
+
+    private void endValue(Kind kind) {
+        endValue(kind, capturing ? (kind == Kind.NUMBER ? text.toString() : literal) : null);
+    }
+
+    private void endValue(Kind kind, String value) {
+        record(valueTargets, kind, value);
+        valueTargets = 0;
+        capturing = false;
+        state = depth == 0 ? DONE : AFTER_VALUE;
+    }
+
+    private void afterValue(int b) {
+        if (b == ',') {
+            int top = depth - 1;
+            if (isObject[top]) {
+                keys[top] = null;
+                state = OBJECT_NEXT;
+            } else {
+                indexes[top]++;
+                state = VALUE;
+            }
+        } else if (b == '}' || b == ']') {
+            if ((b == '}') != isObject[depth - 1]) {
+                fail(b);
+            } else {
+                endContainer();
+            }
+        } else if (!isWhitespace(b)) {
+            fail(b);
+        }
+    }
+
+    /**
+     * Consumes bytes of a skipped container until it closes or the chunk ends
+     */
+    private void skip(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            int b = chunk.get();
+            offset++;
+            if (state == SKIP_STRING) {
+                if (b == '\\') {
+                    state = SKIP_ESCAPE;
+                } else if (b == '"') {
+                    state = SKIP;
+                }
+            } else if (state == SKIP_ESCAPE) {
+                state = SKIP_STRING;
+            } else if (b == '"') {
+                state = SKIP_STRING;
+            } else if (b == '{' || b == '[') {
+                skipDepth++;
+            } else if ((b == '}' || b == ']') && --skipDepth == 0) {
+                state = depth == 0 ? DONE : AFTER_VALUE;
+                return;
+            }
+        }
+    }
+
+    private void push(boolean object, long prefixes) {
+        if (depth == isObject.length) {
+            int size = depth * 2;
+            isObject = Arrays.copyOf(isObject, size);
+            masks = Arrays.copyOf(masks, size);
+            indexes = Arrays.copyOf(indexes, size);
+            keys = Arrays.copyOf(keys, size);
+        }
+        isObject[depth] = object;
+        masks[depth] = prefixes;
+        indexes[depth] = 0;
+        keys[depth] = null;
+        depth++;
+    }
+
+    private void endContainer() {
+        depth--;
+        keys[depth] = null;
+        state = depth == 0 ? DONE : AFTER_VALUE;
+    }
+
+    private void record(long targets, Kind kind, String value) {
+        for (long m = targets; m != 0; m &= m - 1) {
+            int p = Long.numberOfTrailingZeros(m);
+            kinds[p] = kind;
+            values[p] = value;
+        }
+        resolved |= targets;
+    }
+
+    private void escape(int b) {
+        state = STRING;
+        char c;
+        switch (b) {
+            case 'n': c = '\n'; break;
+            case 't': c = '\t'; break;
+            case 'r': c = '\r'; break;
+            case 'b': c = '\b'; break;
+            case 'f': c = '\f'; break;
+            case 'u':
+                unicodeDigits = 0;
+                unicodeValue = 0;
+                state = UNICODE;
+                return;
+            default: c = (char) b; break;
+        }
+        if (capturing) {
+            flushPending();
+            text.append(c);
+        }
+    }
+
+    private void unicodeDigit(int b) {
+        int digit = Character.digit(b, 16);
+        if (digit < 0) {
+            fail(b);
+            return;
+        }
+        unicodeValue = unicodeValue * 16 + digit;
+        if (++unicodeDigits == 4) {
+            if (capturing) {
+                flushPending();
+                text.append((char) unicodeValue);
+            }
+            state = STRING;
+        }
+    }
+
+    private void appendByte(int b) {
+        if (b < 0x80 && pendingLength == 0) {
+            text.append((char) b);
+            return;
+        }
+        // Multi-byte UTF-8 sequences are decoded in one go when the run ends
+        if (pendingLength == pending.length) {
+            pending = Arrays.copyOf(pending, pendingLength * 2);
+        }
+        pending[pendingLength++] = (byte) b;
+    }
+
+    private void flushPending() {
+        if (pendingLength > 0) {
+            text.append(new String(pending, 0, pendingLength, StandardCharsets.UTF_8));
+            pendingLength = 0;
+        }
+    }
+
+    private void fail(int b) {
+        error = "invalid JSON at byte " + offset + ": unexpected '" + (char) b + "'";
+        state = DONE;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static final class PathSet {
+        private final JsonPath[] paths;
+        private final Map<String, Integer> indexByPath = new HashMap<>();
+
+        PathSet(List<String> pathList) {
+            Set<String> unique = new LinkedHashSet<>(pathList);
+            if (unique.size() > MAX_PATHS) {
+                throw new IllegalArgumentException("At most " + MAX_PATHS + " JSON paths per response are supported");
+            }
+            this.paths = new JsonPath[unique.size()];
+            int i = 0;
+            for (String path : unique) {
+                this.paths[i] = JsonPath.parse(path);
+                indexByPath.put(path, i);
+                i++;
+            }
+        }
+    }
+}
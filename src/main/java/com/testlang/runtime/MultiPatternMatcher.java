@@ -0,0 +1,238 @@
+package com.testlang.runtime;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds several substrings in a response body in a single pass.
+ *
+ * The patterns are compiled into one Aho-Corasick automaton over their
+ * UTF-8 bytes, so the body is scanned once without being decoded, and
+ * scanning stops as soon as every pattern has been seen.
+ */
+public class MultiPatternMatcher implements BodyCheck {
+    // Compiled automata are immutable and shared by every matcher for the same patterns
+    private static final BoundedCache<List<String>, Automaton> AUTOMATA = new BoundedCache<>(1024);
+
+    private final String[] patterns;
+    private final Map<String, Integer> indexByPattern;
+    private final int[] delta;      // state * 256 + byte -> next state
+    private final int[][] outputs;  // patterns that end in each state
+    private final boolean[] found;
+    private int foundCount;
+    private int state;
+    private long truncatedAt = -1;
+
+    public MultiPatternMatcher(String... patterns) {
+        Automaton automaton = AUTOMATA.get(Arrays.asList(patterns.clone()), Automaton::new);
+        this.patterns = automaton.patterns;
+        this.indexByPattern = automaton.indexByPattern;
+        this.delta = automaton.delta;
+        this.outputs = automaton.outputs;
+        this.found = new boolean[this.patterns.length];
+        reset();
+    }
+
+    @Override
+    public boolean update(ByteBuffer chunk) {
+        if (foundCount == patterns.length) {
+            return true;
+        }
+        int s = state;
+        if (chunk.hasArray()) {
+            byte[] array = chunk.array();
+            int end = chunk.arrayOffset() + chunk.limit();
+            for (int i = chunk.arrayOffset() + chunk.position(); i < end; i++) {
+                s = delta[(s << 8) | (array[i] & 0xFF)];
+                if (outputs[s] != null && record(outputs[s])) {
+                    chunk.position(i + 1 - chunk.arrayOffset());
+                    state = s;
+                    return true;
+                }
+            }
+            chunk.position(chunk.limit());
+        } else {
+            while (chunk.hasRemaining()) {
+                s = delta[(s << 8) | (chunk.get() & 0xFF)];
+                if (outputs[s] != null && record(outputs[s])) {
+                    state = s;
+                    return true;
+                }
+            }
+        }
+        state = s;
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(found, false);
+        foundCount = 0;
+        state = 0;
+        truncatedAt = -1;
+        // Every body contains the empty string
+        if (outputs[0] != null) {
+            record(outputs[0]);
+        }
+    }
+
+    @Override
+    public void truncated(long limit) {
+        truncatedAt = limit;
+    }
+
+    @Override
+    public void complete() {
+        // Nothing is pending; matches are recorded as soon as they end
+    }
+
+    public boolean found(String pattern) {
+        Integer i = indexByPattern.get(pattern);
+        if (i == null) {
+            throw new IllegalArgumentException("Pattern was not registered with this matcher: " + pattern);
+        }
+        return found[i];
+    }
+
+    public List<String> missing() {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < patterns.length; i++) {
+            if (!found[i]) {
+                result.add(patterns[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Describes a missing pattern together with all other missing ones, for assertion messages
+     */
+    public String describe(String pattern) {
+        StringBuilder message = new StringBuilder("Response body does not contain \"").append(pattern).append('"');
+        List<String> missing = missing();
+        if (missing.size() > 1) {
+            message.append(" (missing ").append(missing.size()).append(" of ").append(patterns.length).append(": ");
+            for (int i = 0; i < missing.size(); i++) {
+                message.append(i == 0 ? "\"" : ", \"").append(missing.get(i)).append('"');
+            }
+            message.append(')');
+        }
+        if (truncatedAt >= 0) {
+            message.append(" (body truncated at ").append(truncatedAt).append(" bytes by max_body)");
+        }
+        return message.toString();
+    }
+
+    /**
+     * Marks patterns as found; returns true once all of them have been
+     */
+    private boolean record(int[] matched) {
+        for (int p : matched) {
+            if (!found[p]) {
+                found[p] = true;
+                foundCount++;
+            }
+        }
+        return foundCount == patterns.length;
+    }
+
+    private static int[] append(int[] list, int value) {
+        if (list == null) {
+            return new int[] { value };
+        }
+        int[] result = Arrays.copyOf(list, list.length + 1);
+        result[list.length] = value;
+        return result;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        if (b == null) {
+            return a;
+        }
+        if (a == null) {
+            return b;
+        }
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static final class Automaton {
+        private final String[] patterns;
+        private final Map<String, Integer> indexByPattern = new HashMap<>();
+        private final int[] delta;
+        private final int[][] outputs;
+
+        Automaton(List<String> patternList) {
+            Set<String> unique = new LinkedHashSet<>(patternList);
+            this.patterns = unique.toArray(new String[0]);
+
+            byte[][] bytes = new byte[this.patterns.length][];
+            int maxStates = 1;
+            for (int i = 0; i < this.patterns.length; i++) {
+                indexByPattern.put(this.patterns[i], i);
+                bytes[i] = this.patterns[i].getBytes(StandardCharsets.UTF_8);
+                maxStates += bytes[i].length;
+            }
+
+            // Build the trie directly in the transition table
+            int[] table = new int[maxStates * 256];
+            Arrays.fill(table, -1);
+            int[][] out = new int[maxStates][];
+            int stateCount = 1;
+            for (int p = 0; p < bytes.length; p++) {
+                int s = 0;
+                for (byte b : bytes[p]) {
+                    int index = (s << 8) | (b & 0xFF);
+                    if (table[index] < 0) {
+                        table[index] = stateCount++;
+                    }
+                    s = table[index];
+                }
+                // The empty pattern ends in the start state
+                out[s] = append(out[s], p);
+            }
+
+            // Breadth-first pass turning the trie into a complete DFA
+            int[] fail = new int[stateCount];
+            int[] queue = new int[stateCount];
+            int head = 0;
+            int tail = 0;
+            for (int b = 0; b < 256; b++) {
+                int child = table[b];
+                if (child < 0) {
+                    table[b] = 0;
+                } else {
+                    fail[child] = 0;
+                    out[child] = merge(out[child], out[0]);
+                    queue[tail++] = child;
+                }
+            }
+            while (head < tail) {
+                int r = queue[head++];
+                for (int b = 0; b < 256; b++) {
+                    int index = (r << 8) | b;
+                    int child = table[index];
+                    int viaFail = table[(fail[r] << 8) | b];
+                    if (child < 0) {
+                        table[index] = viaFail;
+                    } else {
+                        fail[child] = viaFail;
+                        out[child] = merge(out[child], out[viaFail]);
+                        queue[tail++] = child;
+                    }
+                }
+            }
+
+            this.delta = Arrays.copyOf(table, stateCount * 256);
+            this.outputs = Arrays.copyOf(out, stateCount);
+        }
+    }
+}
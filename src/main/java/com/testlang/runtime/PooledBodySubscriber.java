@@ -0,0 +1,141 @@
+package com.testlang.runtime;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Body subscriber for high request rates.
+ *
+ * Each batch of response bytes is copied into a direct buffer borrowed
+ * from a {@link BufferPool} and the check runs on that buffer in place.
+ * The buffer goes back to the pool when the response ends. Together with
+ * a check that is {@link BodyCheck#reset() reset} and reused, a response
+ * costs no allocation proportional to its body size.
+ *
+ * Generated tests do not use it: they use {@link CheckingBodySubscriber},
+ * which checks the client's own buffers without a copy. This subscriber is
+ * the pooled alternative that {@code BodySubscriberAllocationBenchmark}
+ * measures against it.
+ */
+public class PooledBodySubscriber implements HttpResponse.BodySubscriber<Void> {
+    private final BodyCheck check;
+    private final BufferPool pool;
+    private final long maxBytes;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private ByteBuffer buffer;
+    private long received;
+    private boolean done;
+
+    public PooledBodySubscriber(BodyCheck check, BufferPool pool, long maxBytes) {
+        this.check = check;
+        this.pool = pool;
+        this.maxBytes = maxBytes;
+    }
+
+    public static HttpResponse.BodyHandler<Void> handler(BodyCheck check) {
+        return info -> new PooledBodySubscriber(check, BufferPool.shared(), Long.MAX_VALUE);
+    }
+
+    public static HttpResponse.BodyHandler<Void> handler(BodyCheck check, long maxBytes) {
+        return info -> new PooledBodySubscriber(check, BufferPool.shared(), maxBytes);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        this.buffer = pool.acquire();
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (done) {
+            return;
+        }
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                ByteBuffer item = items.get(i);
+                while (item.hasRemaining()) {
+                    if (received == maxBytes) {
+                        // Anything past the cap is dropped
+                        if (!evaluate()) {
+                            check.truncated(maxBytes);
+                        }
+                        stop();
+                        return;
+                    }
+                    int n = (int) Math.min(Math.min(item.remaining(), buffer.remaining()), maxBytes - received);
+                    int limit = item.limit();
+                    item.limit(item.position() + n);
+                    buffer.put(item);
+                    item.limit(limit);
+                    received += n;
+                    if (!buffer.hasRemaining() && evaluate()) {
+                        stop();
+                        return;
+                    }
+                }
+            }
+            if (evaluate()) {
+                stop();
+                return;
+            }
+        } catch (RuntimeException e) {
+            done = true;
+            subscription.cancel();
+            pool.release(buffer);
+            result.completeExceptionally(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!done) {
+            done = true;
+            pool.release(buffer);
+            result.completeExceptionally(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (!done) {
+            evaluate();
+            finish();
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+        return result;
+    }
+
+    /**
+     * Runs the check over the staged bytes and empties the buffer
+     */
+    private boolean evaluate() {
+        buffer.flip();
+        boolean satisfied = buffer.hasRemaining() && check.update(buffer);
+        buffer.clear();
+        return satisfied;
+    }
+
+    private void stop() {
+        finish();
+        subscription.cancel();
+    }
+
+    private void finish() {
+        done = true;
+        check.complete();
+        pool.release(buffer);
+        result.complete(null);
+    }
+}
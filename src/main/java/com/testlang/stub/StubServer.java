@@ -0,0 +1,482 @@
+package com.testlang.stub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.testlang.ast.Assertion;
+import com.testlang.ast.Program;
+import com.testlang.ast.Request;
+import com.testlang.ast.RequestItem;
+import com.testlang.ast.Statement;
+import com.testlang.ast.TestBlock;
+import com.testlang.ast.Value;
+import com.testlang.ast.Variable;
+import com.testlang.codegen.Template;
+import com.testlang.runtime.Env;
+import com.testlang.runtime.JsonPath;
+
+/**
+ * A local HTTP server that answers every request of a program with a
+ * response its assertions accept, to check suites without the real
+ * backend.
+ *
+ * Each request is stubbed from the assertions that follow it: the expected
+ * status (or the lowest status in an expected range), the asserted headers,
+ * and a JSON body that holds the asserted JSON values and body substrings.
+ * Requests are matched by method, path and body, then by method and path
+ * alone. Requests with the same method, path and body in several tests get
+ * one response that satisfies all of their assertions where it can; the
+ * conflicts are reported by {@link #getWarnings()}.
+ *
+ * Variables are bound through {@link Env}, as in the generated class.
+ * Responses are built when the server is created, so serving one is a
+ * map lookup. Built on the JDK's HttpServer.
+ */
+public class StubServer {
+    // A body substring that names an object key, such as "token":
+    private static final Pattern KEY = Pattern.compile("\"([^\"\\\\\\x00-\\x1f]*)\":");
+
+    private final Map<String, Stub> byBody = new HashMap<>();
+    private final Map<String, Stub> byPath = new HashMap<>();
+    private final List<String> warnings = new ArrayList<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubServer(Program program) {
+        Map<String, String> variables = new HashMap<>();
+        for (Variable variable : program.getVariables()) {
+            variables.put(variable.getName(), Env.get(variable.getName(), variable.getValue().asText()));
+        }
+        Map<String, Expectation> expectations = new LinkedHashMap<>();
+        for (TestBlock test : program.getTests()) {
+            Expectation current = null;
+            for (Statement statement : test.getStatements()) {
+                if (statement instanceof Request) {
+                    Request request = (Request) statement;
+                    String method = request.getHttpMethod().name();
+                    String path = path(render(request.getPath(), variables));
+                    RequestItem body = request.getBody();
+                    String text = body != null ? render(body.getValue(), variables) : "";
+                    current = expectations.computeIfAbsent(method + " " + path + "\n" + text,
+                            key -> new Expectation(method + " " + path));
+                } else if (current != null) {
+                    current.add(test.getName(), (Assertion) statement);
+                }
+            }
+        }
+        for (Map.Entry<String, Expectation> entry : expectations.entrySet()) {
+            Stub stub = entry.getValue().build(warnings);
+            byBody.put(entry.getKey(), stub);
+            byPath.putIfAbsent(entry.getValue().route, stub);
+        }
+    }
+
+    /**
+     * Starts serving on {@code address}; port 0 picks a free port
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Number of distinct method, path and body combinations stubbed
+     */
+    public int getStubCount() {
+        return byBody.size();
+    }
+
+    /**
+     * Assertions no single response can satisfy, and how each was resolved
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            String route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getRawPath() +
+                    (exchange.getRequestURI().getRawQuery() != null ? "?" + exchange.getRequestURI().getRawQuery() : "");
+            Stub stub = byBody.get(route + "\n" + body);
+            if (stub == null) {
+                stub = byPath.get(route);
+            }
+            if (stub == null) {
+                stub = new Stub(404, Map.of("Content-Type", "text/plain; charset=utf-8"),
+                        ("No stub for " + route).getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().putAll(stub.headers);
+            exchange.sendResponseHeaders(stub.status, stub.body.length == 0 ? -1 : stub.body.length);
+            if (stub.body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(stub.body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String render(String text, Map<String, String> variables) {
+        return Template.compile(text).render(variables, (name, offset) -> { });
+    }
+
+    /**
+     * The path and query the server sees for a request URL. Relative paths
+     * are appended to base_url, which points at the stub when a suite runs
+     * against it.
+     */
+    private static String path(String url) {
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            URI uri = URI.create(url);
+            return uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        }
+        return url;
+    }
+
+    /**
+     * A built response
+     */
+    private static final class Stub {
+        final int status;
+        final Map<String, List<String>> headers = new LinkedHashMap<>();
+        final byte[] body;
+
+        Stub(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                this.headers.put(header.getKey(), List.of(header.getValue()));
+            }
+            this.body = body;
+        }
+    }
+
+    /**
+     * The assertions made on the responses to one method, path and body
+     */
+    private static final class Expectation {
+        final String route;
+        final List<String> tests = new ArrayList<>();
+        final List<Assertion> assertions = new ArrayList<>();
+
+        Expectation(String route) {
+            this.route = route;
+        }
+
+        void add(String test, Assertion assertion) {
+            tests.add(test);
+            assertions.add(assertion);
+        }
+
+        Stub build(List<String> warnings) {
+            Integer status = null;
+            int low = 0;
+            int high = Integer.MAX_VALUE;
+            Map<String, String> headerValues = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Map<String, Set<String>> headerParts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Set<String> substrings = new LinkedHashSet<>();
+            Object root = null;
+            boolean json = false;
+
+            // Values first, so that contains assertions can check against them
+            for (int i = 0; i < assertions.size(); i++) {
+                Assertion assertion = assertions.get(i);
+                String where = route + ": test '" + tests.get(i) + "' ";
+                switch (assertion.getKind()) {
+                    case STATUS_EQUALS:
+                        if (status == null) {
+                            status = assertion.getStatus();
+                        } else if (status != assertion.getStatus()) {
+                            warnings.add(where + "expects status " + assertion.getStatus() + "; answering " + status);
+                        }
+                        break;
+                    case STATUS_RANGE:
+                        low = Math.max(low, assertion.getStatus());
+                        high = Math.min(high, assertion.getRangeEnd());
+                        break;
+                    case HEADER_EQUALS: {
+                        String previous = headerValues.putIfAbsent(assertion.getHeaderName(), assertion.getText());
+                        if (previous != null && !previous.equals(assertion.getText())) {
+                            warnings.add(where + "expects header \"" + assertion.getHeaderName() + "\" = \"" +
+                                    assertion.getText() + "\"; answering \"" + previous + "\"");
+                        }
+                        break;
+                    }
+                    case HEADER_CONTAINS:
+                        headerParts.computeIfAbsent(assertion.getHeaderName(), name -> new LinkedHashSet<>())
+                                .add(assertion.getText());
+                        break;
+                    case BODY_CONTAINS:
+                        substrings.add(assertion.getText());
+                        break;
+                    case JSON_EQUALS: {
+                        json = true;
+                        Object value = value(assertion.getExpected());
+                        try {
+                            root = set(root, JsonPath.parse(assertion.getPath()), 0, existing -> {
+                                if (existing != null && !existing.equals(value)) {
+                                    throw new IllegalArgumentException("already holds " + write(existing));
+                                }
+                                return value;
+                            });
+                        } catch (IllegalArgumentException e) {
+                            warnings.add(where + "expects " + assertion.getPath() + " = " + write(value) + ", but it " + e.getMessage());
+                        }
+                        break;
+                    }
+                    default:
+                        json = true;
+                        break;
+                }
+            }
+            for (int i = 0; i < assertions.size(); i++) {
+                Assertion assertion = assertions.get(i);
+                if (assertion.getKind() != Assertion.Kind.JSON_CONTAINS) {
+                    continue;
+                }
+                String text = assertion.getText();
+                try {
+                    root = set(root, JsonPath.parse(assertion.getPath()), 0, existing -> {
+                        if (existing == null) {
+                            return new Contains(text);
+                        }
+                        if (existing instanceof Contains) {
+                            ((Contains) existing).add(text);
+                            return existing;
+                        }
+                        if (existing instanceof String && ((String) existing).contains(text)) {
+                            return existing;
+                        }
+                        throw new IllegalArgumentException("already holds " + write(existing));
+                    });
+                } catch (IllegalArgumentException e) {
+                    warnings.add(route + ": test '" + tests.get(i) + "' expects " + assertion.getPath() +
+                            " contains \"" + text + "\", but it " + e.getMessage());
+                }
+            }
+
+            // Body substrings go into the JSON where they fit, and after it otherwise
+            List<String> rest = new ArrayList<>();
+            int extra = 0;
+            for (String substring : substrings) {
+                if (root != null && write(root).contains(substring)) {
+                    continue;
+                }
+                Matcher key = KEY.matcher(substring);
+                if (key.matches() && (root == null || root instanceof Map)) {
+                    root = root == null ? new LinkedHashMap<String, Object>() : root;
+                    object(root).putIfAbsent(key.group(1), null);
+                } else if (write(substring).equals("\"" + substring + "\"") && (root == null || root instanceof Map)) {
+                    root = root == null ? new LinkedHashMap<String, Object>() : root;
+                    object(root).put("stub" + extra++, substring);
+                } else {
+                    rest.add(substring);
+                }
+            }
+            String body;
+            String contentType;
+            if (rest.isEmpty() && root != null) {
+                body = write(root);
+                contentType = "application/json";
+            } else if (!json) {
+                body = String.join("\n", substrings);
+                contentType = "text/plain; charset=utf-8";
+            } else {
+                body = (root != null ? write(root) : "") + "\n" + String.join("\n", rest);
+                contentType = "application/json";
+                warnings.add(route + ": body substrings " + rest + " are appended after the JSON, which makes it invalid");
+            }
+            Set<String> asserted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            asserted.addAll(headerValues.keySet());
+            if (!headerValues.containsKey("Content-Type") && !body.isEmpty()) {
+                headerValues.put("Content-Type", contentType);
+            }
+
+            for (Map.Entry<String, Set<String>> parts : headerParts.entrySet()) {
+                String value = headerValues.get(parts.getKey());
+                for (String part : parts.getValue()) {
+                    if (value == null) {
+                        value = part;
+                    } else if (!value.contains(part)) {
+                        if (asserted.contains(parts.getKey())) {
+                            warnings.add(route + ": header \"" + parts.getKey() + "\" is expected to be \"" + value +
+                                    "\" and to contain \"" + part + "\"; answering \"" + value + "\"");
+                            continue;
+                        }
+                        value = value + " " + part;
+                    }
+                }
+                headerValues.put(parts.getKey(), value);
+            }
+
+            if (status == null) {
+                status = low > 0 ? low : 200;
+            }
+            if (status < low || status > high) {
+                warnings.add(route + ": no status satisfies every expected status and range; answering " + status);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            if ((status == 204 || status == 304) && bytes.length > 0) {
+                warnings.add(route + ": status " + status + " has no body; body assertions will fail");
+                bytes = new byte[0];
+                headerValues.remove("Content-Type");
+            }
+            return new Stub(status, headerValues, bytes);
+        }
+    }
+
+    /**
+     * A string value that must contain each of the asserted substrings
+     */
+    private static final class Contains {
+        final StringBuilder text = new StringBuilder();
+
+        Contains(String first) {
+            text.append(first);
+        }
+
+        void add(String part) {
+            if (text.indexOf(part) < 0) {
+                text.append(' ').append(part);
+            }
+        }
+    }
+
+    private static Object value(Value value) {
+        switch (value.getKind()) {
+            case STRING:
+                return value.getStringValue();
+            case NUMBER:
+                return (long) value.intValue();
+            default:
+                return value.booleanValue();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object node) {
+        return (Map<String, Object>) node;
+    }
+
+    /**
+     * Replaces the value at a path, creating the objects and arrays on the way
+     *
+     * @return the node, or the node created in place of null
+     * @throws IllegalArgumentException if the path runs through a value of another type
+     */
+    @SuppressWarnings("unchecked")
+    private static Object set(Object node, JsonPath path, int depth, UnaryOperator<Object> leaf) {
+        if (depth == path.length()) {
+            return leaf.apply(node);
+        }
+        Object segment = path.segment(depth);
+        if (segment instanceof String) {
+            if (node == null) {
+                node = new LinkedHashMap<String, Object>();
+            } else if (!(node instanceof Map)) {
+                throw new IllegalArgumentException("runs through " + write(node));
+            }
+            Map<String, Object> object = (Map<String, Object>) node;
+            object.put((String) segment, set(object.get(segment), path, depth + 1, leaf));
+            return object;
+        }
+        int index = (Integer) segment;
+        if (node == null) {
+            node = new ArrayList<>();
+        } else if (!(node instanceof List)) {
+            throw new IllegalArgumentException("runs through " + write(node));
+        }
+        List<Object> array = (List<Object>) node;
+        while (array.size() <= index) {
+            array.add(null);
+        }
+        array.set(index, set(array.get(index), path, depth + 1, leaf));
+        return array;
+    }
+
+    private static String write(Object node) {
+        StringBuilder out = new StringBuilder();
+        write(node, out);
+        return out.toString();
+    }
+
+    private static void write(Object node, StringBuilder out) {
+        if (node instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+                out.append(first ? "" : ",");
+                write(entry.getKey(), out);
+                out.append(':');
+                write(entry.getValue(), out);
+                first = false;
+            }
+            out.append('}');
+        } else if (node instanceof List) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (List<?>) node) {
+                out.append(first ? "" : ",");
+                write(element, out);
+                first = false;
+            }
+            out.append(']');
+        } else if (node instanceof String || node instanceof Contains) {
+            String text = node instanceof Contains ? ((Contains) node).text.toString() : (String) node;
+            out.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        } else {
+            out.append(node);
+        }
+    }
+}